@@ -0,0 +1,61 @@
+package com.todoroo.andlib.sql;
+
+import android.test.AndroidTestCase;
+
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
+public class QueryTest extends AndroidTestCase {
+
+    public void testToStringInlinesValues() {
+        Query query = Query.select(Task.ID).from(Task.TABLE)
+                .where(Criterion.and(Task.ID.eq(4L), Task.TITLE.eq("it's")));
+
+        assertEquals("SELECT tasks._id AS _id FROM tasks WHERE ((tasks._id=4) AND (tasks.title='it''s')) ",
+                query.toString());
+    }
+
+    public void testToSqlBindsValues() {
+        Query query = Query.select(Task.ID).from(Task.TABLE)
+                .where(Criterion.and(Task.ID.eq(4L), Task.TITLE.eq("it's")));
+        List<Object> bindArgs = new ArrayList<>();
+
+        assertEquals("SELECT tasks._id AS _id FROM tasks WHERE ((tasks._id=?) AND (tasks.title=?)) ",
+                query.toSql(bindArgs));
+        assertEquals(asList((Object) 4L, "it's"), bindArgs);
+    }
+
+    public void testSameShapeProducesSameSql() {
+        String first = Query.select(Metadata.ID).from(Metadata.TABLE)
+                .where(Criterion.and(Metadata.TASK.eq(1L), Metadata.KEY.eq("a")))
+                .toSql(new ArrayList<>());
+        String second = Query.select(Metadata.ID).from(Metadata.TABLE)
+                .where(Criterion.and(Metadata.TASK.eq(2L), Metadata.KEY.eq("b")))
+                .toSql(new ArrayList<>());
+
+        assertEquals(first, second);
+    }
+
+    public void testBindArgsFollowSqlOrder() {
+        Query query = Query.select(Task.ID).from(Task.TABLE)
+                .join(Join.left(Metadata.TABLE, Criterion.and(Metadata.KEY.eq("key"), Task.ID.eq(Metadata.TASK))))
+                .where(Criterion.or(Task.TITLE.eq("title"), Criterion.not(Task.DELETION_DATE.gt(5L))));
+        List<Object> bindArgs = new ArrayList<>();
+
+        query.toSql(bindArgs);
+
+        assertEquals(asList((Object) "key", "title", 5L), bindArgs);
+    }
+
+    public void testNullValuesAreNotBound() {
+        List<Object> bindArgs = new ArrayList<>();
+
+        assertEquals("(tasks.title IS NULL)", Task.TITLE.eq(null).toSql(bindArgs));
+        assertTrue(bindArgs.isEmpty());
+    }
+}
@@ -13,6 +13,7 @@ import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.test.DatabaseTestCase;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
@@ -141,4 +142,96 @@ public class MetadataDaoTests extends DatabaseTestCase {
 
         assertNull(metadataDao.fetch(1));
     }
+
+    public void testRunInTransactionCommitsAllWrites() {
+        metadataDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    Metadata metadata = new Metadata();
+                    metadata.setTask(1L);
+                    metadata.setKey("key" + i);
+                    metadataDao.persist(metadata);
+                }
+            }
+        });
+
+        assertEquals(10, metadataDao.toList(Query.select(Metadata.ID)).size());
+    }
+
+    public void testRunInTransactionRollsBackOnException() {
+        try {
+            metadataDao.runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    metadata.setTask(1L);
+                    metadata.setKey("key");
+                    metadataDao.persist(metadata);
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+
+        assertTrue(metadataDao.toList(Query.select(Metadata.ID)).isEmpty());
+    }
+
+    public void testDatabaseUpdateNotificationsAreCoalesced() {
+        final AtomicInteger updates = new AtomicInteger();
+        database.addListener(new DatabaseUpdateListener() {
+            @Override
+            public void onDatabaseUpdated() {
+                updates.incrementAndGet();
+            }
+        });
+
+        metadataDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 5; i++) {
+                    Metadata metadata = new Metadata();
+                    metadata.setTask(1L);
+                    metadata.setKey("key" + i);
+                    metadataDao.persist(metadata);
+                }
+                assertEquals(0, updates.get());
+            }
+        });
+
+        assertEquals(1, updates.get());
+    }
+
+    public void testSwallowedInnerFailureDiscardsNotifications() {
+        final AtomicInteger updates = new AtomicInteger();
+        database.addListener(new DatabaseUpdateListener() {
+            @Override
+            public void onDatabaseUpdated() {
+                updates.incrementAndGet();
+            }
+        });
+
+        metadataDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                metadata.setTask(1L);
+                metadata.setKey("key");
+                metadataDao.persist(metadata);
+                try {
+                    metadataDao.runInTransaction(new Runnable() {
+                        @Override
+                        public void run() {
+                            throw new IllegalStateException();
+                        }
+                    });
+                } catch (IllegalStateException expected) {
+                    // swallowed, the whole transaction still rolls back
+                }
+            }
+        });
+
+        assertEquals(0, updates.get());
+        assertTrue(metadataDao.toList(Query.select(Metadata.ID)).isEmpty());
+    }
 }
@@ -16,11 +16,16 @@ import com.todoroo.astrid.test.DatabaseTestCase;
 import org.tasks.injection.TestModule;
 import org.tasks.preferences.Preferences;
 
+import java.util.ArrayList;
+import java.util.Map;
+
 import javax.inject.Inject;
 
 import dagger.Module;
 import dagger.Provides;
 
+import static java.util.Arrays.asList;
+
 @SuppressWarnings("nls")
 public class GtasksMetadataServiceTest extends DatabaseTestCase {
 
@@ -77,6 +82,51 @@ public class GtasksMetadataServiceTest extends DatabaseTestCase {
         thenExpectNoMetadataFound();
     }
 
+    public void testLocalIdForGtasksId() {
+        givenTask(taskWithMetadata("remote"));
+
+        assertEquals(task.getId(), gtasksMetadataService.localIdForGtasksId("remote"));
+        assertEquals(Task.NO_ID, gtasksMetadataService.localIdForGtasksId("other"));
+    }
+
+    public void testLocalIdFollowsRemoteIdChanges() {
+        givenTask(taskWithMetadata("remote"));
+        whenSearchForMetadata();
+
+        metadata.setValue(GtasksMetadata.ID, "changed");
+        metadataDao.persist(metadata);
+
+        assertEquals(Task.NO_ID, gtasksMetadataService.localIdForGtasksId("remote"));
+        assertEquals(task.getId(), gtasksMetadataService.localIdForGtasksId("changed"));
+    }
+
+    public void testLocalIdRemovedWithMetadata() {
+        givenTask(taskWithMetadata("remote"));
+        whenSearchForMetadata();
+
+        metadataDao.delete(metadata.getId());
+
+        assertEquals(Task.NO_ID, gtasksMetadataService.localIdForGtasksId("remote"));
+    }
+
+    public void testMetadataByGtaskIds() {
+        givenTask(taskWithMetadata("remote"));
+        Task other = taskWithMetadata("other");
+
+        Map<String, Metadata> result = gtasksMetadataService.getMetadataByGtaskIds(
+                asList("remote", "other", "missing"));
+
+        assertEquals(2, result.size());
+        assertEquals(task.getId(), (long) result.get("remote").getTask());
+        assertEquals(other.getId(), (long) result.get("other").getTask());
+    }
+
+    public void testNoMetadataForNoGtaskIds() {
+        givenTask(taskWithMetadata("remote"));
+
+        assertTrue(gtasksMetadataService.getMetadataByGtaskIds(new ArrayList<String>()).isEmpty());
+    }
+
     // --- helpers
 
     private void thenExpectNoMetadataFound() {
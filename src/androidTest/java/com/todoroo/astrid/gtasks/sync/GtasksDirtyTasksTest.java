@@ -0,0 +1,58 @@
+package com.todoroo.astrid.gtasks.sync;
+
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import javax.inject.Inject;
+
+import static java.util.Collections.singletonList;
+
+public class GtasksDirtyTasksTest extends DatabaseTestCase {
+
+    @Inject GtasksDirtyTasks dirtyTasks;
+    @Inject TaskDao taskDao;
+
+    private Task task;
+
+    @Override
+    public void setUp() {
+        super.setUp();
+        task = new Task();
+        task.setTitle("task");
+        taskDao.createNew(task);
+    }
+
+    public void testNewTaskIsDirty() {
+        assertEquals(singletonList(task.getId()), dirtyTasks.getTaskIds());
+    }
+
+    public void testRemove() {
+        dirtyTasks.remove(singletonList(task.getId()));
+
+        assertTrue(dirtyTasks.getTaskIds().isEmpty());
+    }
+
+    public void testModifiedTaskIsDirty() {
+        dirtyTasks.remove(singletonList(task.getId()));
+
+        task.setTitle("changed");
+        taskDao.save(task);
+
+        assertEquals(singletonList(task.getId()), dirtyTasks.getTaskIds());
+    }
+
+    public void testDeletedTaskIsRemoved() {
+        taskDao.delete(task.getId());
+
+        assertTrue(dirtyTasks.getTaskIds().isEmpty());
+    }
+
+    public void testMarkAll() {
+        dirtyTasks.remove(singletonList(task.getId()));
+
+        dirtyTasks.markAll();
+
+        assertEquals(singletonList(task.getId()), dirtyTasks.getTaskIds());
+    }
+}
@@ -0,0 +1,67 @@
+package com.todoroo.astrid.gtasks.sync;
+
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class GtasksOutboxTest extends DatabaseTestCase {
+
+    @Inject GtasksOutbox outbox;
+
+    public void testEmptyOutbox() {
+        assertTrue(outbox.pending().isEmpty());
+    }
+
+    public void testRepeatedPushesAreMerged() {
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 1);
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 4);
+
+        List<GtasksOutbox.Entry> pending = outbox.pending();
+        assertEquals(1, pending.size());
+        assertEquals(1, pending.get(0).task);
+        assertEquals(5, pending.get(0).columns);
+    }
+
+    public void testPushesBeforeMoves() {
+        outbox.enqueue(1, GtasksOutbox.TYPE_MOVE, 0);
+        outbox.enqueue(2, GtasksOutbox.TYPE_PUSH, 1);
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 1);
+
+        List<GtasksOutbox.Entry> pending = outbox.pending();
+        assertEquals(3, pending.size());
+        assertEquals(GtasksOutbox.TYPE_PUSH, pending.get(0).type);
+        assertEquals(GtasksOutbox.TYPE_PUSH, pending.get(1).type);
+        assertEquals(GtasksOutbox.TYPE_MOVE, pending.get(2).type);
+    }
+
+    public void testRemoveProcessedEntry() {
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 1);
+
+        outbox.remove(outbox.pending().get(0));
+
+        assertTrue(outbox.pending().isEmpty());
+    }
+
+    public void testKeepEntryMergedWhileProcessing() {
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 1);
+        GtasksOutbox.Entry processing = outbox.pending().get(0);
+
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 2);
+        outbox.remove(processing);
+
+        List<GtasksOutbox.Entry> pending = outbox.pending();
+        assertEquals(1, pending.size());
+        assertEquals(3, pending.get(0).columns);
+    }
+
+    public void testClear() {
+        outbox.enqueue(1, GtasksOutbox.TYPE_PUSH, 1);
+        outbox.enqueue(1, GtasksOutbox.TYPE_MOVE, 0);
+
+        outbox.clear();
+
+        assertTrue(outbox.pending().isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package com.todoroo.astrid.gtasks.sync;
+
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.gtasks.GtasksMetadata;
+import com.todoroo.astrid.gtasks.GtasksMetadataService;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import javax.inject.Inject;
+
+import static java.util.Collections.singletonList;
+
+public class GtasksTreeChangeTest extends DatabaseTestCase {
+
+    @Inject TaskDao taskDao;
+    @Inject MetadataDao metadataDao;
+    @Inject GtasksMetadata gtasksMetadata;
+    @Inject GtasksMetadataService gtasksMetadataService;
+
+    private Task task;
+
+    @Override
+    public void setUp() {
+        super.setUp();
+        task = new Task();
+        task.setTitle("task");
+        taskDao.createNew(task);
+    }
+
+    public void testPushedTaskWithoutOrderChangesTree() {
+        // created locally and pushed, google's position was never stored
+        Metadata metadata = gtasksMetadata.createEmptyMetadata(task.getId());
+        metadata.setValue(GtasksMetadata.ID, "remote");
+        metadataDao.persist(metadata);
+
+        Metadata match = gtasksMetadataService.getMetadataByGtaskIds(singletonList("remote")).get("remote");
+
+        assertTrue(GtasksSyncV2Provider.treeChanged(match, task, 1, Task.NO_ID));
+    }
+
+    public void testUnchangedPositionKeepsTree() {
+        Metadata metadata = gtasksMetadata.createEmptyMetadata(task.getId());
+        metadata.setValue(GtasksMetadata.ID, "remote");
+        metadata.setValue(GtasksMetadata.GTASKS_ORDER, 1L);
+        metadataDao.persist(metadata);
+
+        Metadata match = gtasksMetadataService.getMetadataByGtaskIds(singletonList("remote")).get("remote");
+
+        assertFalse(GtasksSyncV2Provider.treeChanged(match, task, 1, Task.NO_ID));
+    }
+
+    public void testNewTaskChangesTree() {
+        assertTrue(GtasksSyncV2Provider.treeChanged(null, null, 1, Task.NO_ID));
+    }
+}
@@ -5,6 +5,7 @@
  */
 package com.todoroo.astrid.reminders;
 
+import android.app.Notification;
 import android.app.PendingIntent;
 import android.content.Intent;
 
@@ -12,6 +13,7 @@ import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.test.DatabaseTestCase;
+import com.todoroo.astrid.utility.Constants;
 
 import org.tasks.Broadcaster;
 import org.tasks.injection.TestModule;
@@ -50,6 +52,7 @@ public class NotificationTests extends DatabaseTestCase {
     @Inject Notifications notifications;
     @Inject NotificationManager notificationManager;
     @Inject Broadcaster broadcaster;
+    @Inject ReminderQueue reminderQueue;
 
     @Override
     protected void tearDown() {
@@ -77,7 +80,65 @@ public class NotificationTests extends DatabaseTestCase {
                 eq(ReminderService.TYPE_DUE),
                 eq("rubberduck"),
                 eq("Tasks"),
-                eq(1));
+                eq(1),
+                eq((String) null));
+    }
+
+    public void testSimultaneousRemindersAreGrouped() {
+        final Task first = new Task() {{
+            setTitle("rubberduck");
+            setDueDate(DateUtilities.now() - DateUtilities.ONE_DAY);
+        }};
+        final Task second = new Task() {{
+            setTitle("gooeyduck");
+            setDueDate(DateUtilities.now() - DateUtilities.ONE_DAY);
+        }};
+        taskDao.persist(first);
+        taskDao.persist(second);
+        reminderQueue.add(first.getId(), DateUtilities.now() - 1000, ReminderService.TYPE_DUE);
+        reminderQueue.addAlarm(first.getId(), 1, DateUtilities.now() - 1000);
+        reminderQueue.add(second.getId(), DateUtilities.now() - 1000, ReminderService.TYPE_DUE);
+
+        notifications.handle(new Intent(ReminderQueue.ACTION_REMINDERS_DUE));
+
+        verify(broadcaster).requestNotification(
+                eq(first.getId()),
+                any(PendingIntent.class),
+                eq(ReminderService.TYPE_DUE),
+                eq("rubberduck"),
+                eq("Tasks"),
+                eq(1),
+                eq(Notifications.GROUP_REMINDERS));
+        verify(broadcaster).requestNotification(
+                eq(second.getId()),
+                any(PendingIntent.class),
+                eq(ReminderService.TYPE_DUE),
+                eq("gooeyduck"),
+                eq("Tasks"),
+                eq(1),
+                eq(Notifications.GROUP_REMINDERS));
+        verify(notificationManager).notify(eq(Constants.NOTIFICATION_REMINDERS), any(Notification.class));
+    }
+
+    public void testAlarmFiresWhenHiddenTaskSkipsRandomReminder() {
+        final Task task = new Task() {{
+            setTitle("rubberduck");
+            setHideUntil(DateUtilities.now() + DateUtilities.ONE_DAY);
+        }};
+        taskDao.persist(task);
+        reminderQueue.add(task.getId(), DateUtilities.now() - 1000, ReminderService.TYPE_RANDOM);
+        reminderQueue.addAlarm(task.getId(), 1, DateUtilities.now() - 1000);
+
+        notifications.handle(new Intent(ReminderQueue.ACTION_REMINDERS_DUE));
+
+        verify(broadcaster).requestNotification(
+                eq(task.getId()),
+                any(PendingIntent.class),
+                eq(ReminderService.TYPE_ALARM),
+                eq("rubberduck"),
+                eq("Tasks"),
+                eq(1),
+                eq((String) null));
     }
 
     public void testDeletedTaskDoesntTriggerNotification() {
@@ -0,0 +1,107 @@
+package com.todoroo.astrid.reminders;
+
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+public class ReminderQueueTest extends DatabaseTestCase {
+
+    @Inject ReminderQueue reminderQueue;
+
+    public void testEmptyQueue() {
+        assertEquals(ReminderService.NO_ALARM, reminderQueue.getNextTime());
+        assertTrue(reminderQueue.removeDue(Long.MAX_VALUE - 1).isEmpty());
+    }
+
+    public void testNextTimeIsEarliest() {
+        reminderQueue.add(1, 3000, ReminderService.TYPE_DUE);
+        reminderQueue.add(2, 1000, ReminderService.TYPE_RANDOM);
+        reminderQueue.add(3, 2000, ReminderService.TYPE_OVERDUE);
+
+        assertEquals(1000, reminderQueue.getNextTime());
+    }
+
+    public void testAddReplacesTaskReminder() {
+        reminderQueue.add(1, 1000, ReminderService.TYPE_DUE);
+        reminderQueue.add(1, 2000, ReminderService.TYPE_SNOOZE);
+
+        List<ReminderQueue.Entry> due = reminderQueue.removeDue(5000);
+        assertEquals(1, due.size());
+        assertEquals(2000, due.get(0).time);
+        assertEquals(ReminderService.TYPE_SNOOZE, due.get(0).type);
+    }
+
+    public void testRemove() {
+        reminderQueue.add(1, 1000, ReminderService.TYPE_DUE);
+
+        reminderQueue.remove(1);
+
+        assertEquals(ReminderService.NO_ALARM, reminderQueue.getNextTime());
+    }
+
+    public void testRemoveDueKeepsFutureReminders() {
+        reminderQueue.add(1, 2000, ReminderService.TYPE_DUE);
+        reminderQueue.add(2, 1000, ReminderService.TYPE_DUE);
+        reminderQueue.add(3, 3000, ReminderService.TYPE_DUE);
+
+        List<ReminderQueue.Entry> due = reminderQueue.removeDue(2000);
+
+        assertEquals(2, due.size());
+        assertEquals(2, due.get(0).task);
+        assertEquals(1, due.get(1).task);
+        assertEquals(3000, reminderQueue.getNextTime());
+    }
+
+    public void testClearReminders() {
+        reminderQueue.add(1, 1000, ReminderService.TYPE_DUE);
+        reminderQueue.add(2, 2000, ReminderService.TYPE_DUE);
+        reminderQueue.addAlarm(1, 5, 3000);
+
+        reminderQueue.clearReminders();
+
+        assertEquals(3000, reminderQueue.getNextTime());
+    }
+
+    public void testAlarmsQueuedBesideReminder() {
+        reminderQueue.add(1, 1000, ReminderService.TYPE_DUE);
+        reminderQueue.addAlarm(1, 5, 2000);
+        reminderQueue.addAlarm(1, 6, 3000);
+
+        List<ReminderQueue.Entry> due = reminderQueue.removeDue(5000);
+
+        assertEquals(3, due.size());
+        assertEquals(ReminderQueue.REMINDER, due.get(0).alarm);
+        assertEquals(5, due.get(1).alarm);
+        assertEquals(ReminderService.TYPE_ALARM, due.get(1).type);
+        assertEquals(6, due.get(2).alarm);
+    }
+
+    public void testRemoveReminderKeepsAlarms() {
+        reminderQueue.add(1, 1000, ReminderService.TYPE_DUE);
+        reminderQueue.addAlarm(1, 5, 2000);
+
+        reminderQueue.remove(1);
+
+        assertEquals(2000, reminderQueue.getNextTime());
+    }
+
+    public void testRemoveAlarm() {
+        reminderQueue.addAlarm(1, 5, 2000);
+        reminderQueue.addAlarm(1, 6, 3000);
+
+        reminderQueue.removeAlarm(1, 5);
+
+        assertEquals(3000, reminderQueue.getNextTime());
+    }
+
+    public void testClearAlarmsKeepsReminders() {
+        reminderQueue.add(1, 3000, ReminderService.TYPE_DUE);
+        reminderQueue.addAlarm(1, 5, 2000);
+
+        reminderQueue.clearAlarms();
+
+        assertEquals(3000, reminderQueue.getNextTime());
+    }
+}
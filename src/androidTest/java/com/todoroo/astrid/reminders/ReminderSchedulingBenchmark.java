@@ -0,0 +1,88 @@
+package com.todoroo.astrid.reminders;
+
+import android.database.Cursor;
+
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.alarms.AlarmService;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+
+import static android.os.SystemClock.elapsedRealtime;
+
+/**
+ * Cost of rebuilding the reminder queue after a reboot, as done by
+ * {@link org.tasks.scheduling.ReminderSchedulerIntentService}
+ */
+public class ReminderSchedulingBenchmark extends DatabaseTestCase {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderSchedulingBenchmark.class);
+
+    private static final int TASKS = 10000;
+    private static final int ALARMS = 1000;
+
+    @Inject TaskDao taskDao;
+    @Inject ReminderService reminderService;
+    @Inject AlarmService alarmService;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+
+        // insert directly, so that setup doesn't schedule anything
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                long start = DateUtilities.now() + DateUtilities.ONE_DAY;
+                for (int i = 0 ; i < TASKS ; i++) {
+                    Task task = new Task();
+                    task.setTitle("task " + i);
+                    task.setUuid(Integer.toString(i + 1));
+                    task.setDueDate(Task.createDueDate(Task.URGENCY_SPECIFIC_DAY_TIME, start + i * DateUtilities.ONE_MINUTE));
+                    task.setReminderFlags(Task.NOTIFY_AT_DEADLINE);
+                    long taskId = database.insert(Task.TABLE.name, null, task.getMergedValues());
+                    if (i < ALARMS) {
+                        Metadata alarm = new Metadata();
+                        alarm.setTask(taskId);
+                        alarm.setKey(AlarmFields.METADATA_KEY);
+                        alarm.setValue(AlarmFields.TIME, start + i * DateUtilities.ONE_HOUR);
+                        alarm.setValue(AlarmFields.TYPE, AlarmFields.TYPE_SINGLE);
+                        database.insert(Metadata.TABLE.name, null, alarm.getMergedValues());
+                    }
+                }
+            }
+        });
+    }
+
+    public void testColdBootRescheduling() {
+        long started = elapsedRealtime();
+        taskDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                reminderService.scheduleAllAlarms(taskDao);
+                alarmService.scheduleAllAlarms();
+            }
+        });
+        long elapsed = elapsedRealtime() - started;
+
+        log.info("rescheduled {} tasks and {} alarms in {}ms", TASKS, ALARMS, elapsed);
+        assertEquals(TASKS + ALARMS, queueSize());
+    }
+
+    private int queueSize() {
+        Cursor cursor = database.rawQuery("SELECT COUNT(*) FROM " + ReminderQueue.TABLE.name);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
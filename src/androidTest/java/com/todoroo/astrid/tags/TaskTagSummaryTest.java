@@ -0,0 +1,96 @@
+package com.todoroo.astrid.tags;
+
+import android.database.Cursor;
+
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.test.DatabaseTestCase;
+
+import javax.inject.Inject;
+
+public class TaskTagSummaryTest extends DatabaseTestCase {
+
+    @Inject MetadataDao metadataDao;
+    @Inject TaskDao taskDao;
+    @Inject TagService tagService;
+
+    private Task task;
+
+    @Override
+    public void setUp() {
+        super.setUp();
+        task = new Task();
+        task.setTitle("task");
+        taskDao.createNew(task);
+    }
+
+    public void testNoSummaryWithoutTags() {
+        assertNull(summary(task.getId()));
+    }
+
+    public void testAddingTagsUpdatesSummary() {
+        addTag("home", "1");
+        assertEquals("home", summary(task.getId()));
+
+        addTag("work", "2");
+        String summary = summary(task.getId());
+        assertTrue(summary.equals("home  |  work") || summary.equals("work  |  home"));
+    }
+
+    public void testDeletedTagsAreRemovedFromSummary() {
+        Metadata home = addTag("home", "1");
+        addTag("work", "2");
+
+        home.setDeletionDate(1L);
+        metadataDao.persist(home);
+
+        assertEquals("work", summary(task.getId()));
+    }
+
+    public void testRenameUpdatesSummary() {
+        addTag("home", "1");
+
+        tagService.rename("1", "house");
+
+        assertEquals("house", summary(task.getId()));
+    }
+
+    public void testBulkDeleteClearsSummary() {
+        addTag("home", "1");
+
+        metadataDao.deleteWhere(Criterion.and(MetadataCriteria.byTask(task.getId()),
+                MetadataCriteria.withKey(TaskToTagMetadata.KEY)));
+
+        assertNull(summary(task.getId()));
+    }
+
+    public void testOtherMetadataIsIgnored() {
+        Metadata metadata = new Metadata();
+        metadata.setTask(task.getId());
+        metadata.setKey("other");
+        metadata.setValue(Metadata.VALUE1, "value");
+        metadataDao.persist(metadata);
+
+        assertNull(summary(task.getId()));
+    }
+
+    private Metadata addTag(String name, String uuid) {
+        Metadata link = TaskToTagMetadata.newTagMetadata(task.getId(), task.getUUID(), name, uuid);
+        metadataDao.persist(link);
+        return link;
+    }
+
+    private String summary(long taskId) {
+        Cursor cursor = database.rawQuery("SELECT " + TaskTagSummary.TAGS.name + " FROM " +
+                TaskTagSummary.TABLE.name + " WHERE " + TaskTagSummary.TASK.name + " = ?", new Object[] { taskId });
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -10,8 +10,13 @@ import com.todoroo.astrid.gtasks.GtasksIndentActionTest;
 import com.todoroo.astrid.gtasks.GtasksListServiceTest;
 import com.todoroo.astrid.gtasks.GtasksTaskListUpdaterTest;
 import com.todoroo.astrid.gtasks.GtasksTaskMovingTest;
+import com.todoroo.astrid.gtasks.sync.GtasksDirtyTasksTest;
+import com.todoroo.astrid.gtasks.sync.GtasksOutboxTest;
+import com.todoroo.astrid.gtasks.sync.GtasksTreeChangeTest;
 import com.todoroo.astrid.model.TaskTest;
 import com.todoroo.astrid.provider.Astrid3ProviderTests;
+import com.todoroo.astrid.reminders.ReminderQueueTest;
+import com.todoroo.astrid.reminders.ReminderSchedulingBenchmark;
 import com.todoroo.astrid.reminders.ReminderServiceTest;
 import com.todoroo.astrid.repeats.NewRepeatTests;
 import com.todoroo.astrid.service.QuickAddMarkupTest;
@@ -21,6 +26,9 @@ import com.todoroo.astrid.subtasks.SubtasksMovingTest;
 import com.todoroo.astrid.subtasks.SubtasksTestCase;
 import com.todoroo.astrid.sync.NewSyncTestCase;
 import com.todoroo.astrid.sync.SyncModelTest;
+import com.todoroo.astrid.tags.TaskTagSummaryTest;
+
+import org.tasks.sync.SyncMetricsTest;
 
 import javax.inject.Singleton;
 
@@ -45,7 +53,14 @@ import dagger.Provides;
         SubtasksHelperTest.class,
         SubtasksMovingTest.class,
         SyncModelTest.class,
-        GtasksListServiceTest.class
+        GtasksListServiceTest.class,
+        TaskTagSummaryTest.class,
+        GtasksOutboxTest.class,
+        GtasksDirtyTasksTest.class,
+        GtasksTreeChangeTest.class,
+        SyncMetricsTest.class,
+        ReminderQueueTest.class,
+        ReminderSchedulingBenchmark.class
 })
 public class TestModule {
     private Context context;
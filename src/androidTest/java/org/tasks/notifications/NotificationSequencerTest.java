@@ -0,0 +1,64 @@
+package org.tasks.notifications;
+
+import android.app.Notification;
+import android.media.AudioManager;
+import android.test.AndroidTestCase;
+
+import com.todoroo.astrid.voice.VoiceOutputAssistant;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.tasks.notifications.NotificationSequencer.RING_INTERVAL;
+import static org.tasks.notifications.NotificationSequencer.SETTLE_DELAY;
+
+public class NotificationSequencerTest extends AndroidTestCase {
+
+    private NotificationManager notificationManager;
+    private VoiceOutputAssistant voiceOutputAssistant;
+    private AudioManager audioManager;
+    private NotificationSequencer sequencer;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        notificationManager = mock(NotificationManager.class);
+        voiceOutputAssistant = mock(VoiceOutputAssistant.class);
+        audioManager = mock(AudioManager.class);
+        when(audioManager.getStreamVolume(AudioManager.STREAM_ALARM)).thenReturn(3);
+        when(audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM)).thenReturn(7);
+        when(audioManager.getMode()).thenReturn(AudioManager.MODE_NORMAL);
+        sequencer = new NotificationSequencer(notificationManager, voiceOutputAssistant, audioManager);
+    }
+
+    public void testRingsEachTime() {
+        sequencer.play(1, new Notification(), 3, false, null);
+
+        verify(notificationManager, timeout(4 * RING_INTERVAL).times(3)).notify(eq(1), any(Notification.class));
+    }
+
+    public void testRingingDoesntDelayOtherReminders() {
+        sequencer.play(1, new Notification(), 5, false, null);
+        sequencer.play(2, new Notification(), 1, false, null);
+
+        verify(notificationManager, timeout(RING_INTERVAL / 2)).notify(eq(2), any(Notification.class));
+    }
+
+    public void testOverlappingRemindersRestoreVolumeOnce() {
+        sequencer.play(1, new Notification(), 2, true, "first");
+        sequencer.play(2, new Notification(), 5, true, "second");
+
+        // the first reminder is done, the second is still ringing
+        verify(voiceOutputAssistant, timeout(2 * SETTLE_DELAY)).speak("first");
+        verify(audioManager).setStreamVolume(AudioManager.STREAM_ALARM, 7, 0);
+        verify(audioManager, never()).setStreamVolume(AudioManager.STREAM_ALARM, 3, 0);
+
+        verify(voiceOutputAssistant, timeout(2 * SETTLE_DELAY)).speak("second");
+        verify(audioManager).setStreamVolume(AudioManager.STREAM_ALARM, 7, 0);
+        verify(audioManager).setStreamVolume(AudioManager.STREAM_ALARM, 3, 0);
+    }
+}
@@ -0,0 +1,102 @@
+package org.tasks.sync;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.preferences.Preferences;
+
+import javax.inject.Inject;
+
+import static org.tasks.Freeze.freezeAt;
+import static org.tasks.Freeze.thaw;
+
+public class SyncMetricsTest extends InjectingTestCase {
+
+    private static final long NOW = 1400000000000L;
+
+    @Inject Preferences preferences;
+
+    private SyncMetrics syncMetrics;
+
+    @Override
+    protected void setUp() {
+        super.setUp();
+        syncMetrics = new SyncMetrics(preferences);
+        syncMetrics.clearHistory();
+        freezeAt(NOW);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        thaw();
+        syncMetrics.clearHistory();
+        super.tearDown();
+    }
+
+    public void testNothingRecordedOutsideRun() {
+        syncMetrics.request(10, 1, 1);
+        syncMetrics.finishRun();
+
+        assertEquals(0, syncMetrics.getHistory().length());
+    }
+
+    public void testRecordRun() throws JSONException {
+        syncMetrics.startRun(SyncMetrics.RUN_SYNC);
+        freezeAt(NOW + 300);
+        syncMetrics.phase(SyncMetrics.PHASE_PULL, NOW);
+        syncMetrics.phase(SyncMetrics.PHASE_PULL, NOW + 200);
+        syncMetrics.request(50, 100, 2000);
+        syncMetrics.request(3000, -1, 500);
+        syncMetrics.requestFailed();
+        syncMetrics.dbWrites(7);
+        syncMetrics.finishRun();
+
+        JSONObject run = syncMetrics.getHistory().getJSONObject(0);
+        assertEquals(SyncMetrics.RUN_SYNC, run.getString("trigger"));
+        assertEquals(NOW, run.getLong("started"));
+        assertEquals(300, run.getLong("millis"));
+        JSONObject pull = run.getJSONObject("phases").getJSONObject(SyncMetrics.PHASE_PULL);
+        assertEquals(2, pull.getLong("count"));
+        assertEquals(400, pull.getLong("millis"));
+        assertEquals(2, run.getInt("requests"));
+        assertEquals(1, run.getInt("failures"));
+        assertEquals(100, run.getLong("bytesSent"));
+        assertEquals(2500, run.getLong("bytesReceived"));
+        assertEquals(7, run.getInt("dbWrites"));
+        JSONArray latency = run.getJSONArray("latency");
+        assertEquals(1, latency.getInt(0));
+        assertEquals(1, latency.getInt(SyncMetrics.LATENCY_BUCKETS.length));
+    }
+
+    public void testOverlappingRunsRecordedOnce() throws JSONException {
+        syncMetrics.startRun(SyncMetrics.RUN_SYNC);
+        syncMetrics.startRun(SyncMetrics.RUN_PUSH);
+        syncMetrics.request(10, 0, 0);
+        syncMetrics.finishRun();
+
+        assertEquals(0, syncMetrics.getHistory().length());
+
+        syncMetrics.request(10, 0, 0);
+        syncMetrics.finishRun();
+
+        JSONArray history = syncMetrics.getHistory();
+        assertEquals(1, history.length());
+        assertEquals(SyncMetrics.RUN_SYNC, history.getJSONObject(0).getString("trigger"));
+        assertEquals(2, history.getJSONObject(0).getInt("requests"));
+    }
+
+    public void testHistoryIsTrimmed() throws JSONException {
+        for (int i = 0 ; i < SyncMetrics.HISTORY_SIZE + 5 ; i++) {
+            freezeAt(NOW + i);
+            syncMetrics.startRun(SyncMetrics.RUN_SYNC);
+            syncMetrics.finishRun();
+        }
+
+        JSONArray history = syncMetrics.getHistory();
+        assertEquals(SyncMetrics.HISTORY_SIZE, history.length());
+        assertEquals(NOW + 5, history.getJSONObject(0).getLong("started"));
+        assertEquals(NOW + SyncMetrics.HISTORY_SIZE + 4,
+                history.getJSONObject(SyncMetrics.HISTORY_SIZE - 1).getLong("started"));
+    }
+}
@@ -0,0 +1,111 @@
+package org.tasks.sync;
+
+import android.test.AndroidTestCase;
+
+import static org.tasks.Freeze.freezeAt;
+import static org.tasks.Freeze.thaw;
+import static org.tasks.sync.SyncThrottle.LIST_INTERVAL;
+import static org.tasks.sync.SyncThrottle.MAX_BACKOFF;
+import static org.tasks.sync.SyncThrottle.MAX_QUIET_SHIFT;
+import static org.tasks.sync.SyncThrottle.MIN_BACKOFF;
+
+public class SyncThrottleTest extends AndroidTestCase {
+
+    private static final long NOW = 1400000000000L;
+
+    private SyncThrottle throttle;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        throttle = new SyncThrottle();
+        freezeAt(NOW);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        thaw();
+        super.tearDown();
+    }
+
+    public void testFirstSyncAllowed() {
+        assertTrue(throttle.canSync(1));
+    }
+
+    public void testSecondSyncWaitsForInterval() {
+        throttle.canSync(1);
+
+        freezeAt(NOW + LIST_INTERVAL - 1);
+        assertFalse(throttle.canSync(1));
+
+        freezeAt(NOW + LIST_INTERVAL);
+        assertTrue(throttle.canSync(1));
+    }
+
+    public void testListsThrottledIndependently() {
+        throttle.canSync(1);
+
+        assertTrue(throttle.canSync(2));
+    }
+
+    public void testQuietSyncsDoubleInterval() {
+        throttle.listSynchronized(1, false);
+        assertEquals(LIST_INTERVAL << 1, throttle.getInterval(1));
+
+        throttle.listSynchronized(1, false);
+        assertEquals(LIST_INTERVAL << 2, throttle.getInterval(1));
+    }
+
+    public void testQuietIntervalIsCapped() {
+        for (int i = 0 ; i < MAX_QUIET_SHIFT + 5 ; i++) {
+            throttle.listSynchronized(1, false);
+        }
+
+        assertEquals(LIST_INTERVAL << MAX_QUIET_SHIFT, throttle.getInterval(1));
+    }
+
+    public void testChangesResetInterval() {
+        throttle.listSynchronized(1, false);
+        throttle.listSynchronized(1, true);
+
+        assertEquals(LIST_INTERVAL, throttle.getInterval(1));
+    }
+
+    public void testBackoffBlocksSync() {
+        throttle.backOff();
+
+        assertTrue(throttle.isBackingOff());
+        assertFalse(throttle.canSync(1));
+
+        freezeAt(NOW + MIN_BACKOFF);
+        assertFalse(throttle.isBackingOff());
+        assertTrue(throttle.canSync(1));
+    }
+
+    public void testBackoffIsExponential() {
+        throttle.backOff();
+        throttle.backOff();
+
+        freezeAt(NOW + MIN_BACKOFF);
+        assertTrue(throttle.isBackingOff());
+
+        freezeAt(NOW + 2 * MIN_BACKOFF);
+        assertFalse(throttle.isBackingOff());
+    }
+
+    public void testBackoffIsCapped() {
+        for (int i = 0 ; i < 20 ; i++) {
+            throttle.backOff();
+        }
+
+        freezeAt(NOW + MAX_BACKOFF);
+        assertFalse(throttle.isBackingOff());
+    }
+
+    public void testSuccessResetsBackoff() {
+        throttle.backOff();
+        throttle.resetBackoff();
+
+        assertFalse(throttle.isBackingOff());
+    }
+}
@@ -5,10 +5,11 @@ import android.content.Intent;
 import com.google.android.gms.location.GeofencingEvent;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.reminders.Notifications;
+import com.todoroo.astrid.reminders.ReminderService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tasks.Broadcaster;
 import org.tasks.injection.InjectingIntentService;
 
 import java.util.List;
@@ -19,7 +20,6 @@ public class GeofenceTransitionsIntentService extends InjectingIntentService {
 
     private static final Logger log = LoggerFactory.getLogger(GeofenceTransitionsIntentService.class);
 
-    @Inject Broadcaster broadcaster;
     @Inject MetadataDao metadataDao;
 
     public GeofenceTransitionsIntentService() {
@@ -53,9 +53,17 @@ public class GeofenceTransitionsIntentService extends InjectingIntentService {
         try {
             Metadata fetch = metadataDao.fetch(Long.parseLong(requestId), Metadata.TASK, GeofenceFields.PLACE, GeofenceFields.LATITUDE, GeofenceFields.LONGITUDE, GeofenceFields.RADIUS);
             Geofence geofence = new Geofence(fetch);
-            broadcaster.requestNotification(geofence.getMetadataId(), geofence.getTaskId());
+            requestNotification(geofence.getMetadataId(), geofence.getTaskId());
         } catch(Exception e) {
             log.error(String.format("Error triggering geofence %s: %s", requestId, e.getMessage()), e);
         }
     }
+
+    private void requestNotification(long geofenceId, long taskId) {
+        Intent intent = new Intent(this, Notifications.class);
+        intent.setAction("GEOFENCE" + geofenceId); //$NON-NLS-1$
+        intent.putExtra(Notifications.ID_KEY, taskId);
+        intent.putExtra(Notifications.EXTRAS_TYPE, ReminderService.TYPE_ALARM);
+        sendBroadcast(intent);
+    }
 }
\ No newline at end of file
@@ -11,7 +11,6 @@ import android.os.Parcelable;
 
 import com.todoroo.andlib.data.Property.IntegerProperty;
 import com.todoroo.andlib.data.Property.LongProperty;
-import com.todoroo.andlib.data.Property.PropertyVisitor;
 import com.todoroo.andlib.utility.AndroidUtilities;
 
 import org.slf4j.Logger;
@@ -33,6 +32,11 @@ import static com.todoroo.andlib.data.Property.DoubleProperty;
  * A single database can be represented by multiple <code>AbstractModel</code>s
  * corresponding to different queries that return a different set of columns.
  * Each model exposes a set of properties that it contains.
+ * <p>
+ * Models are meant to be confined to the thread that loaded them. Reads and
+ * writes only lock the model itself, and {@link DatabaseDao} hands update
+ * listeners their own copy, so models loaded on different threads never
+ * contend with each other.
  *
  * @author Tim Su <tim@todoroo.com>
  *
@@ -41,8 +45,6 @@ public abstract class AbstractModel implements Parcelable, Cloneable {
 
     private static final Logger log = LoggerFactory.getLogger(AbstractModel.class);
 
-    private static final ContentValuesSavingVisitor saver = new ContentValuesSavingVisitor();
-
     /** id property common to all models */
     protected static final String ID_PROPERTY_NAME = "_id"; //$NON-NLS-1$
 
@@ -179,21 +181,14 @@ public abstract class AbstractModel implements Parcelable, Cloneable {
      */
     void readPropertiesFromCursor(TodorooCursor<? extends AbstractModel> cursor) {
         if (values == null) {
-            values = new ContentValues();
+            values = new ContentValues(cursor.getProperties().length);
         }
 
         // clears user-set values
         setValues = null;
         transitoryData = null;
 
-        for (Property<?> property : cursor.getProperties()) {
-            try {
-                saver.save(property, values, cursor.get(property));
-            } catch (IllegalArgumentException e) {
-                // underlying cursor may have changed, suppress
-                log.error(e.getMessage(), e);
-            }
-        }
+        cursor.readRow(values);
     }
 
     /**
@@ -336,7 +331,11 @@ public abstract class AbstractModel implements Parcelable, Cloneable {
             return;
         }
 
-        saver.save(property, setValues, value);
+        // we don't allow null values, as they indicate unset properties
+        // when the database was written
+        if (value != null) {
+            AndroidUtilities.putInto(setValues, property.getColumnName(), value);
+        }
     }
 
     /**
@@ -444,52 +443,6 @@ public abstract class AbstractModel implements Parcelable, Cloneable {
         return properties.toArray(new Property<?>[properties.size()]);
     }
 
-    /**
-     * Visitor that saves a value into a content values store
-     *
-     * @author Tim Su <tim@todoroo.com>
-     *
-     */
-    public static class ContentValuesSavingVisitor implements PropertyVisitor<Void, Object> {
-
-        private ContentValues store;
-
-        public synchronized void save(Property<?> property, ContentValues newStore, Object value) {
-            this.store = newStore;
-
-            // we don't allow null values, as they indicate unset properties
-            // when the database was written
-
-            if(value != null) {
-                property.accept(this, value);
-            }
-        }
-
-        @Override
-        public Void visitInteger(Property<Integer> property, Object value) {
-            store.put(property.getColumnName(), (Integer) value);
-            return null;
-        }
-
-        @Override
-        public Void visitLong(Property<Long> property, Object value) {
-            store.put(property.getColumnName(), (Long) value);
-            return null;
-        }
-
-        @Override
-        public Void visitDouble(Property<Double> property, Object value) {
-            store.put(property.getColumnName(), (Double) value);
-            return null;
-        }
-
-        @Override
-        public Void visitString(Property<String> property, Object value) {
-            store.put(property.getColumnName(), (String) value);
-            return null;
-        }
-    }
-
     // --- parcelable helpers
 
     /**
@@ -15,9 +15,10 @@ import com.todoroo.astrid.dao.Database;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * DAO for reading data from an instance of {@link Database}. If you
@@ -33,6 +34,8 @@ public class DatabaseDao<TYPE extends AbstractModel> {
 
     private final Class<TYPE> modelClass;
 
+    private final Constructor<TYPE> constructor;
+
     private Table table;
 
     private Database database;
@@ -42,7 +45,7 @@ public class DatabaseDao<TYPE extends AbstractModel> {
         this.database = database;
         table = database.getTable(this.modelClass);
         try {
-            modelClass.getConstructor(); // check for default constructor
+            constructor = modelClass.getConstructor(); // check for default constructor
         } catch (NoSuchMethodException e) {
             throw new RuntimeException(e);
         }
@@ -66,10 +69,15 @@ public class DatabaseDao<TYPE extends AbstractModel> {
     }
 
     protected void onModelUpdated(TYPE model) {
-        TYPE modelCopy = (TYPE) model.clone();
-        for(ModelUpdateListener<TYPE> listener : listeners) {
-            listener.onModelUpdated(modelCopy);
-        }
+        final TYPE modelCopy = (TYPE) model.clone();
+        database.afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                for(ModelUpdateListener<TYPE> listener : listeners) {
+                    listener.onModelUpdated(modelCopy);
+                }
+            }
+        });
     }
 
     // --- dao methods
@@ -112,8 +120,8 @@ public class DatabaseDao<TYPE extends AbstractModel> {
     private TYPE fromCursor(TodorooCursor<TYPE> cursor) {
         TYPE instance;
         try {
-            instance = modelClass.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
+            instance = constructor.newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             throw new RuntimeException(e);
         }
         instance.readPropertiesFromCursor(cursor);
@@ -125,7 +133,9 @@ public class DatabaseDao<TYPE extends AbstractModel> {
      */
     public TodorooCursor<TYPE> query(Query query) {
         query.from(table);
-        Cursor cursor = database.rawQuery(query.toString());
+        List<Object> bindArgs = new ArrayList<>();
+        String sql = query.toSql(bindArgs);
+        Cursor cursor = database.rawQuery(sql, bindArgs.toArray());
         return new TodorooCursor<>(cursor, query.getFields());
     }
 
@@ -159,8 +169,7 @@ public class DatabaseDao<TYPE extends AbstractModel> {
      * @return true if delete was successful
      */
     public boolean delete(long id) {
-        return database.delete(table.name,
-                AbstractModel.ID_PROPERTY.eq(id).toString(), null) > 0;
+        return database.delete(table.name, WHERE_ID, idArgs(id)) > 0;
     }
 
     /**
@@ -213,20 +222,27 @@ public class DatabaseDao<TYPE extends AbstractModel> {
         }
     }
 
+    /**
+     * Run the given operation in a single transaction
+     * @see Database#runInTransaction(Runnable)
+     */
+    public void runInTransaction(Runnable runnable) {
+        database.runInTransaction(runnable);
+    }
+
     private interface DatabaseChangeOp {
         public boolean makeChange();
     }
 
     private boolean insertOrUpdateAndRecordChanges(TYPE item, DatabaseChangeOp op) {
-        final AtomicBoolean result = new AtomicBoolean(false);
-        synchronized(database) {
-            result.set(op.makeChange());
-            if (result.get()) {
-                onModelUpdated(item);
-                item.markSaved();
-            }
+        // sqlite serializes writes, locking the database here as well could
+        // deadlock with a transaction that holds the connection
+        boolean result = op.makeChange();
+        if (result) {
+            onModelUpdated(item);
+            item.markSaved();
         }
-        return result.get();
+        return result;
     }
 
     /**
@@ -268,8 +284,7 @@ public class DatabaseDao<TYPE extends AbstractModel> {
         DatabaseChangeOp update = new DatabaseChangeOp() {
             @Override
             public boolean makeChange() {
-                return database.update(table.name, values,
-                        AbstractModel.ID_PROPERTY.eq(item.getId()).toString()) > 0;
+                return database.update(table.name, values, WHERE_ID, idArgs(item.getId())) > 0;
             }
         };
         return insertOrUpdateAndRecordChanges(item, update);
@@ -277,6 +292,12 @@ public class DatabaseDao<TYPE extends AbstractModel> {
 
     // --- helper methods
 
+    private static final String WHERE_ID = AbstractModel.ID_PROPERTY.name + "=?";
+
+    private static String[] idArgs(long id) {
+        return new String[] { Long.toString(id) };
+    }
+
     public int count(Query query) {
         TodorooCursor<TYPE> cursor = query(query);
         try {
@@ -5,11 +5,18 @@
  */
 package com.todoroo.andlib.data;
 
+import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.CursorWrapper;
 
+import com.todoroo.andlib.data.Property.DoubleProperty;
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
 import com.todoroo.andlib.data.Property.PropertyVisitor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.WeakHashMap;
 
 /**
@@ -23,9 +30,20 @@ import java.util.WeakHashMap;
  */
 public class TodorooCursor<TYPE extends AbstractModel> extends CursorWrapper {
 
+    private static final Logger log = LoggerFactory.getLogger(TodorooCursor.class);
+
+    private static final int TYPE_INTEGER = 0;
+    private static final int TYPE_LONG = 1;
+    private static final int TYPE_DOUBLE = 2;
+    private static final int TYPE_STRING = 3;
+
     /** Properties read by this cursor */
     private final Property<?>[] properties;
 
+    /** Column index and value type of each property, resolved on first row read */
+    private int[] columns;
+    private int[] types;
+
     /** Weakly cache field name to column id references for this cursor.
      * Because it's a weak hash map, entire keys can be discarded by GC */
     private final WeakHashMap<String, Integer> columnIndexCache;
@@ -63,6 +81,71 @@ public class TodorooCursor<TYPE extends AbstractModel> extends CursorWrapper {
         return properties;
     }
 
+    /**
+     * Read every property of the current row into the given store. Column
+     * indices and types are resolved once per cursor, so this avoids the
+     * per-column visitor dispatch and column name lookups.
+     */
+    void readRow(ContentValues store) {
+        if (columns == null) {
+            resolveColumns();
+        }
+        for (int i = 0; i < properties.length; i++) {
+            int column = columns[i];
+            if (column < 0) {
+                continue;
+            }
+            Property<?> property = properties[i];
+            if (property.checkFlag(Property.PROP_FLAG_NULLABLE) && isNull(column)) {
+                continue;
+            }
+            String name = property.getColumnName();
+            switch (types[i]) {
+                case TYPE_INTEGER:
+                    store.put(name, getInt(column));
+                    break;
+                case TYPE_LONG:
+                    store.put(name, getLong(column));
+                    break;
+                case TYPE_DOUBLE:
+                    store.put(name, getDouble(column));
+                    break;
+                default:
+                    String value = getString(column);
+                    if (value != null) {
+                        store.put(name, value);
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void resolveColumns() {
+        int[] columns = new int[properties.length];
+        int[] types = new int[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            Property<?> property = properties[i];
+            try {
+                columns[i] = getColumnIndexFromCache(property.getColumnName());
+            } catch (IllegalArgumentException e) {
+                // underlying cursor may have changed, suppress
+                log.error(e.getMessage(), e);
+                columns[i] = -1;
+            }
+            if (property instanceof IntegerProperty) {
+                types[i] = TYPE_INTEGER;
+            } else if (property instanceof LongProperty) {
+                types[i] = TYPE_LONG;
+            } else if (property instanceof DoubleProperty) {
+                types[i] = TYPE_DOUBLE;
+            } else {
+                types[i] = TYPE_STRING;
+            }
+        }
+        this.types = types;
+        this.columns = columns;
+    }
+
     /**
      * Use cache to get the column index for the given field name
      */
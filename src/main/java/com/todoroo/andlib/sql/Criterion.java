@@ -5,6 +5,8 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.AND;
 import static com.todoroo.andlib.sql.SqlConstants.LEFT_PARENTHESIS;
 import static com.todoroo.andlib.sql.SqlConstants.NOT;
@@ -31,9 +33,15 @@ public abstract class Criterion {
 
             @Override
             protected void populate(StringBuilder sb) {
-                sb.append(criterion);
+                populate(sb, null);
+            }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> bindArgs) {
+                criterion.appendTo(sb, bindArgs);
                 for (Criterion c : criterions) {
-                    sb.append(SPACE).append(AND).append(SPACE).append(c);
+                    sb.append(SPACE).append(AND).append(SPACE);
+                    c.appendTo(sb, bindArgs);
                 }
             }
         };
@@ -44,9 +52,15 @@ public abstract class Criterion {
 
             @Override
             protected void populate(StringBuilder sb) {
-                sb.append(criterion);
+                populate(sb, null);
+            }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> bindArgs) {
+                criterion.appendTo(sb, bindArgs);
                 for (Criterion c : criterions) {
-                    sb.append(SPACE).append(OR).append(SPACE).append(c.toString());
+                    sb.append(SPACE).append(OR).append(SPACE);
+                    c.appendTo(sb, bindArgs);
                 }
             }
         };
@@ -57,20 +71,51 @@ public abstract class Criterion {
 
             @Override
             protected void populate(StringBuilder sb) {
+                populate(sb, null);
+            }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> bindArgs) {
                 sb.append(NOT).append(SPACE);
-                criterion.populate(sb);
+                criterion.populate(sb, bindArgs);
             }
         };
     }
 
     protected abstract void populate(StringBuilder sb);
 
+    /**
+     * Populate the builder, writing literal values as '?' placeholders and
+     * adding them to bindArgs in order. Criteria without literal values
+     * inline everything. A null bindArgs inlines all values.
+     */
+    protected void populate(StringBuilder sb, List<Object> bindArgs) {
+        populate(sb);
+    }
+
+    void appendTo(StringBuilder sb, List<Object> bindArgs) {
+        sb.append(LEFT_PARENTHESIS);
+        if (bindArgs == null) {
+            populate(sb);
+        } else {
+            populate(sb, bindArgs);
+        }
+        sb.append(RIGHT_PARENTHESIS);
+    }
+
+    /**
+     * @return parameterized sql for this criterion, with literal values
+     * appended to bindArgs
+     */
+    public String toSql(List<Object> bindArgs) {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder, bindArgs);
+        return builder.toString();
+    }
+
     @Override
     public String toString() {
-        StringBuilder builder = new StringBuilder(LEFT_PARENTHESIS);
-        populate(builder);
-        builder.append(RIGHT_PARENTHESIS);
-        return builder.toString();
+        return toSql(null);
     }
 
 }
@@ -5,6 +5,8 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.COMMA;
 import static com.todoroo.andlib.sql.SqlConstants.LEFT_PARENTHESIS;
 import static com.todoroo.andlib.sql.SqlConstants.RIGHT_PARENTHESIS;
@@ -99,7 +101,12 @@ public class Field extends DBObject<Field> {
 
             @Override
             protected void populate(StringBuilder sb) {
-                sb.append(field).append(SPACE).append(Operator.in).append(SPACE).append(LEFT_PARENTHESIS).append(query)
+                populate(sb, null);
+            }
+
+            @Override
+            protected void populate(StringBuilder sb, List<Object> bindArgs) {
+                sb.append(field).append(SPACE).append(Operator.in).append(SPACE).append(LEFT_PARENTHESIS).append(query.toSql(bindArgs))
                         .append(RIGHT_PARENTHESIS);
             }
         };
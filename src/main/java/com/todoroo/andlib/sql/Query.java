@@ -8,6 +8,7 @@ package com.todoroo.andlib.sql;
 import com.todoroo.andlib.data.Property;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static com.todoroo.andlib.sql.SqlConstants.ALL;
 import static com.todoroo.andlib.sql.SqlConstants.COMMA;
@@ -89,13 +90,23 @@ public final class Query {
 
     @Override
     public String toString() {
+        return toSql(null);
+    }
+
+    /**
+     * Build parameterized sql for this query. Literal values in join and
+     * where clauses are written as '?' placeholders and appended to bindArgs
+     * in order, so queries of the same shape produce identical sql and can
+     * reuse compiled statements. A null bindArgs inlines all values.
+     */
+    public String toSql(List<Object> bindArgs) {
         StringBuilder sql = new StringBuilder();
         visitSelectClause(sql);
         visitFromClause(sql);
 
-        visitJoinClause(sql);
+        visitJoinClause(sql, bindArgs);
         if(queryTemplate == null) {
-            visitWhereClause(sql);
+            visitWhereClause(sql, bindArgs);
             visitGroupByClause(sql);
             visitOrderByClause(sql);
             visitLimitClause(sql);
@@ -131,19 +142,21 @@ public final class Query {
         sql.deleteCharAt(sql.length() - 1).append(SPACE);
     }
 
-    private void visitWhereClause(StringBuilder sql) {
+    private void visitWhereClause(StringBuilder sql, List<Object> bindArgs) {
         if (criterions.isEmpty()) {
             return;
         }
         sql.append(WHERE);
         for (Criterion criterion : criterions) {
-            sql.append(SPACE).append(criterion).append(SPACE);
+            sql.append(SPACE);
+            criterion.appendTo(sql, bindArgs);
+            sql.append(SPACE);
         }
     }
 
-    private void visitJoinClause(StringBuilder sql) {
+    private void visitJoinClause(StringBuilder sql, List<Object> bindArgs) {
         for (Join join : joins) {
-            sql.append(join).append(SPACE);
+            sql.append(join.toSql(bindArgs)).append(SPACE);
         }
     }
 
@@ -5,6 +5,8 @@
  */
 package com.todoroo.andlib.sql;
 
+import java.util.List;
+
 import static com.todoroo.andlib.sql.SqlConstants.SPACE;
 
 public class UnaryCriterion extends Criterion {
@@ -19,9 +21,14 @@ public class UnaryCriterion extends Criterion {
 
     @Override
     protected void populate(StringBuilder sb) {
+        populate(sb, null);
+    }
+
+    @Override
+    protected void populate(StringBuilder sb, List<Object> bindArgs) {
         beforePopulateOperator(sb);
         populateOperator(sb);
-        afterPopulateOperator(sb);
+        afterPopulateOperator(sb, bindArgs);
     }
 
     public static Criterion eq(Field expression, Object value) {
@@ -36,18 +43,26 @@ public class UnaryCriterion extends Criterion {
         sb.append(operator);
     }
 
-    protected void afterPopulateOperator(StringBuilder sb) {
+    protected void afterPopulateOperator(StringBuilder sb, List<Object> bindArgs) {
         if(value == null) {
             return;
         }
 
-        if(value instanceof String) {
+        if(bindArgs != null && isBindable(value)) {
+            sb.append('?');
+            bindArgs.add(value);
+        } else if(value instanceof String) {
             sb.append("'").append(sanitize((String) value)).append("'");
         } else {
             sb.append(value);
         }
     }
 
+    private static boolean isBindable(Object value) {
+        return value instanceof String || value instanceof Long ||
+                value instanceof Integer || value instanceof Double;
+    }
+
     /**
      * Sanitize the given input for SQL
      */
@@ -105,8 +120,8 @@ public class UnaryCriterion extends Criterion {
                 sb.append(SPACE).append(operator).append(SPACE);
             }
             @Override
-            protected void afterPopulateOperator(StringBuilder sb) {
-                super.afterPopulateOperator(sb);
+            protected void afterPopulateOperator(StringBuilder sb, List<Object> bindArgs) {
+                super.afterPopulateOperator(sb, bindArgs);
                 sb.append(SPACE).append("ESCAPE").append(" '").append(sanitize(escape)).append("'");
             }
         };
@@ -12,10 +12,12 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.res.Resources;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
 import android.os.Bundle;
 import android.support.v4.app.Fragment;
+import android.support.v4.app.LoaderManager.LoaderCallbacks;
+import android.support.v4.content.AsyncTaskLoader;
+import android.support.v4.content.Loader;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AlertDialog;
 import android.text.TextUtils;
@@ -36,7 +38,6 @@ import android.widget.ListView;
 
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.TodorooCursor;
-import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Field;
 import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.utility.AndroidUtilities;
@@ -51,7 +52,6 @@ import com.todoroo.astrid.core.BuiltInFilterExposer;
 import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.dao.TaskAttachmentDao;
 import com.todoroo.astrid.dao.TaskListMetadataDao;
-import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
@@ -66,7 +66,7 @@ import com.todoroo.astrid.service.TaskService;
 import com.todoroo.astrid.subtasks.SubtasksHelper;
 import com.todoroo.astrid.subtasks.SubtasksListFragment;
 import com.todoroo.astrid.subtasks.SubtasksUpdater;
-import com.todoroo.astrid.tags.TaskToTagMetadata;
+import com.todoroo.astrid.tags.TaskTagSummary;
 import com.todoroo.astrid.timers.TimerPlugin;
 import com.todoroo.astrid.ui.QuickAddBar;
 import com.todoroo.astrid.utility.Flags;
@@ -82,6 +82,12 @@ import org.tasks.notifications.NotificationManager;
 import org.tasks.preferences.ActivityPreferences;
 import org.tasks.ui.NavigationDrawerFragment;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicReference;
@@ -108,6 +114,8 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     public static final long AUTOSYNC_INTERVAL = 90000L;
     private static final long BACKGROUND_REFRESH_INTERVAL = 120000L;
     private static final long WAIT_BEFORE_AUTOSYNC = 2000L;
+    private static final int LOADER_TASK_LIST = 0;
+    private static final int LOADER_UPDATED_ROWS = 1;
     public static final int ACTIVITY_EDIT_TASK = 0;
     public static final int ACTIVITY_REQUEST_NEW_FILTER = 5;
 
@@ -143,6 +151,19 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
     protected TaskAdapter taskAdapter = null;
     protected RefreshReceiver refreshReceiver = new RefreshReceiver();
     protected final AtomicReference<String> sqlQueryTemplate = new AtomicReference<>();
+    private String rowJoins;
+    /** Task to select once the list is loaded, see {@link #selectCustomId} */
+    private long pendingSelectId = Task.NO_ID;
+    /** Incremented when a list query starts */
+    private int queryGeneration;
+    /** Generation of the query that produced the adapter's cursor */
+    private int cursorGeneration;
+    /** Tasks to re-read once the rows being loaded are done */
+    private final Set<Long> pendingRowIds = new LinkedHashSet<>();
+    /** Tasks being re-read, null if no row update is loading */
+    private List<Long> loadingRowIds;
+    /** Query generation when the rows being loaded were requested */
+    private int rowGeneration;
     protected SyncActionHelper syncActionHelper;
     protected Filter filter;
     protected int sortFlags;
@@ -573,6 +594,12 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
                 return;
             }
 
+            long taskId = intent.getLongExtra(AstridApiConstants.EXTRAS_TASK_ID, 0L);
+            if (taskId > 0 && canUpdateRowInPlace(intent.getStringArrayExtra(AstridApiConstants.EXTRAS_CHANGED_COLUMNS))) {
+                updateRow(taskId);
+                return;
+            }
+
             final Activity activity = getActivity();
             if (activity != null) {
                 activity.runOnUiThread(new Runnable() {
@@ -585,14 +612,134 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         }
     }
 
+    /**
+     * An update can be applied to its row alone if none of the changed columns
+     * are referenced by the list query, so membership and order are unchanged
+     */
+    private boolean canUpdateRowInPlace(String[] changedColumns) {
+        String query = sqlQueryTemplate.get();
+        if (changedColumns == null || query == null || rowJoins == null || taskAdapter == null) {
+            return false;
+        }
+        if (getView() != null && getListView().hasTextFilter()) {
+            return false;
+        }
+        for (String column : changedColumns) {
+            if (query.contains(column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Re-read a task in the background and rebind it without requerying the
+     * list. Updates that arrive while rows are loading are read together
+     * next. Falls back to a full refresh if a task is gone or untitled.
+     */
+    private void updateRow(long taskId) {
+        pendingRowIds.add(taskId);
+        if (loadingRowIds == null) {
+            loadUpdatedRows();
+        }
+    }
+
+    private void loadUpdatedRows() {
+        loadingRowIds = new ArrayList<>(pendingRowIds);
+        pendingRowIds.clear();
+        rowGeneration = queryGeneration;
+        getLoaderManager().restartLoader(LOADER_UPDATED_ROWS, null, rowLoaderCallbacks);
+    }
+
+    private final LoaderCallbacks<Map<Long, TaskAdapter.UpdatedRow>> rowLoaderCallbacks = new LoaderCallbacks<Map<Long, TaskAdapter.UpdatedRow>>() {
+        @Override
+        public Loader<Map<Long, TaskAdapter.UpdatedRow>> onCreateLoader(int id, Bundle args) {
+            String query = rowJoins + " WHERE " + Task.ID.in(loadingRowIds) + " GROUP BY " + Task.ID; //$NON-NLS-1$ //$NON-NLS-2$
+            return new UpdatedRowLoader(getActivity(), taskService, query, taskProperties());
+        }
+
+        @Override
+        public void onLoadFinished(Loader<Map<Long, TaskAdapter.UpdatedRow>> loader, Map<Long, TaskAdapter.UpdatedRow> rows) {
+            if (loadingRowIds == null) {
+                // redelivered after a configuration change
+                return;
+            }
+            List<Long> ids = loadingRowIds;
+            loadingRowIds = null;
+            // rows read before the current cursor's query started are older than the cursor
+            if (taskAdapter != null && rowGeneration >= cursorGeneration) {
+                boolean refresh = false;
+                for (Long id : ids) {
+                    TaskAdapter.UpdatedRow row = rows.get(id);
+                    if (row == null || TextUtils.isEmpty(row.getTask().getTitle())) {
+                        refresh = true;
+                    } else {
+                        taskAdapter.updateRow(row);
+                    }
+                }
+                if (refresh) {
+                    refresh();
+                } else {
+                    taskAdapter.notifyDataSetChanged();
+                }
+            }
+            if (!pendingRowIds.isEmpty()) {
+                loadUpdatedRows();
+            }
+        }
+
+        @Override
+        public void onLoaderReset(Loader<Map<Long, TaskAdapter.UpdatedRow>> loader) {
+        }
+    };
+
+    /**
+     * Reads the given rows off the UI thread
+     */
+    private static class UpdatedRowLoader extends AsyncTaskLoader<Map<Long, TaskAdapter.UpdatedRow>> {
+
+        private final TaskService taskService;
+        private final String query;
+        private final Property<?>[] properties;
+
+        public UpdatedRowLoader(Context context, TaskService taskService, String query, Property<?>[] properties) {
+            super(context);
+            this.taskService = taskService;
+            this.query = query;
+            this.properties = properties;
+        }
+
+        @Override
+        public Map<Long, TaskAdapter.UpdatedRow> loadInBackground() {
+            Map<Long, TaskAdapter.UpdatedRow> rows = new HashMap<>();
+            TodorooCursor<Task> cursor = taskService.fetchFiltered(query, null, properties);
+            try {
+                for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                    TaskAdapter.UpdatedRow row = new TaskAdapter.UpdatedRow(cursor);
+                    rows.put(row.getTask().getId(), row);
+                }
+            } finally {
+                cursor.close();
+            }
+            return rows;
+        }
+
+        @Override
+        protected void onStartLoading() {
+            forceLoad();
+        }
+
+        @Override
+        protected void onStopLoading() {
+            cancelLoad();
+        }
+    }
+
     /**
      * Called by the RefreshReceiver when the task list receives a refresh
      * broadcast. Subclasses should override this.
      */
     protected void refresh() {
-        if (taskAdapter != null) {
-            taskAdapter.flushCaches();
-        }
         TaskEditFragment taskEditFragment = ((AstridActivity) getActivity()).getTaskEditFragment();
         Task model = taskEditFragment == null ? null : taskEditFragment.model;
         taskDeleter.deleteTasksWithEmptyTitles(model == null ? null : model.getId());
@@ -607,27 +754,140 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
      */
 
     /**
-     * Load or re-load action items and update views
+     * Load or re-load action items and update views. The current rows stay
+     * visible until the new cursor has been read in the background.
      */
     public void loadTaskListContent() {
-        if (taskAdapter == null) {
+        if (taskAdapter == null || sqlQueryTemplate.get() == null) {
             setUpTaskList();
             return;
         }
 
-        Cursor taskCursor = taskAdapter.getCursor();
+        startLoading();
+    }
+
+    private void startLoading() {
+        queryGeneration++;
+        getLoaderManager().restartLoader(LOADER_TASK_LIST, null, loaderCallbacks);
+    }
+
+    private final LoaderCallbacks<TodorooCursor<Task>> loaderCallbacks = new LoaderCallbacks<TodorooCursor<Task>>() {
+        @Override
+        public Loader<TodorooCursor<Task>> onCreateLoader(int id, Bundle args) {
+            return new TaskListLoader(getActivity(), taskService, sqlQueryTemplate.get(), taskProperties(), queryGeneration);
+        }
+
+        @Override
+        public void onLoadFinished(Loader<TodorooCursor<Task>> loader, TodorooCursor<Task> cursor) {
+            if (cursor == null) {
+                return;
+            }
+            cursorGeneration = ((TaskListLoader) loader).generation;
+            if (taskAdapter == null) {
+                taskAdapter = createTaskAdapter(cursor);
+                setListAdapter(taskAdapter);
+            } else {
+                int oldListItemSelected = getView() == null
+                        ? ListView.INVALID_POSITION
+                        : getListView().getSelectedItemPosition();
+                taskAdapter.changeCursor(cursor);
+                taskAdapter.flushCaches();
+                taskAdapter.notifyDataSetChanged();
+                if (oldListItemSelected != ListView.INVALID_POSITION
+                        && oldListItemSelected < cursor.getCount()) {
+                    getListView().setSelection(oldListItemSelected);
+                }
+            }
+            if (pendingSelectId != Task.NO_ID && getView() != null) {
+                select(cursor, pendingSelectId);
+                pendingSelectId = Task.NO_ID;
+            }
+        }
+
+        @Override
+        public void onLoaderReset(Loader<TodorooCursor<Task>> loader) {
+        }
+    };
+
+    /**
+     * Runs the list query off the UI thread. Results of a query that was
+     * restarted before it finished are closed instead of delivered; the
+     * delivered cursor belongs to the adapter.
+     */
+    private static class TaskListLoader extends AsyncTaskLoader<TodorooCursor<Task>> {
+
+        private final TaskService taskService;
+        private final String query;
+        private final Property<?>[] properties;
+        private final int generation;
+        private TodorooCursor<Task> cursor;
+
+        public TaskListLoader(Context context, TaskService taskService, String query, Property<?>[] properties,
+                              int generation) {
+            super(context);
+            this.taskService = taskService;
+            this.query = query;
+            this.properties = properties;
+            this.generation = generation;
+        }
+
+        @Override
+        public TodorooCursor<Task> loadInBackground() {
+            try {
+                TodorooCursor<Task> result = taskService.fetchFiltered(query, null, properties);
+                // fill the cursor window here rather than on the first bind
+                result.getCount();
+                return result;
+            } catch (SQLiteException e) {
+                // We don't show this error anymore--seems like this can get triggered
+                // by a strange bug, but there seems to not be any negative side effect.
+                // For now, we'll suppress the error
+                // See http://astrid.com/home#tags-7tsoi/task-1119pk
+                log.error(e.getMessage(), e);
+                return null;
+            }
+        }
+
+        @Override
+        public void deliverResult(TodorooCursor<Task> data) {
+            if (isReset()) {
+                if (data != null) {
+                    data.close();
+                }
+                return;
+            }
+            cursor = data;
+            if (isStarted()) {
+                super.deliverResult(data);
+            }
+        }
+
+        @Override
+        protected void onStartLoading() {
+            if (cursor != null && !cursor.isClosed()) {
+                deliverResult(cursor);
+            } else {
+                forceLoad();
+            }
+        }
 
-        taskCursor.requery();
-        taskAdapter.flushCaches();
-        taskAdapter.notifyDataSetChanged();
+        @Override
+        protected void onStopLoading() {
+            cancelLoad();
+        }
 
-        if (getView() != null) { // This was happening sometimes
-            int oldListItemSelected = getListView().getSelectedItemPosition();
-            if (oldListItemSelected != ListView.INVALID_POSITION
-                    && oldListItemSelected < taskCursor.getCount()) {
-                getListView().setSelection(oldListItemSelected);
+        @Override
+        public void onCanceled(TodorooCursor<Task> data) {
+            if (data != null) {
+                data.close();
             }
         }
+
+        @Override
+        protected void onReset() {
+            onStopLoading();
+            cursor = null;
+        }
     }
 
     protected TaskAdapter createTaskAdapter(TodorooCursor<Task> cursor) {
@@ -640,8 +900,6 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
                 });
     }
 
-    public static final String TAGS_METADATA_JOIN = "for_tags"; //$NON-NLS-1$
-
     public  static final String FILE_METADATA_JOIN = "for_actions"; //$NON-NLS-1$
 
 
@@ -653,18 +911,9 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
             return;
         }
 
-        TodorooCursor<Task> currentCursor = constructCursor();
-        if (currentCursor == null) {
-            return;
-        }
-
-        // set up list adapters
-        taskAdapter = createTaskAdapter(currentCursor);
-
-        setListAdapter(taskAdapter);
+        constructQuery();
         registerForContextMenu(getListView());
-
-        loadTaskListContent();
+        startLoading();
     }
 
     public Property<?>[] taskProperties() {
@@ -675,27 +924,13 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
         return filter;
     }
 
-    private TodorooCursor<Task> constructCursor() {
-        String tagName = null;
-        if (getActiveTagData() != null) {
-            tagName = getActiveTagData().getName();
-        }
-
-        Criterion tagsJoinCriterion = Criterion.and(
-                Field.field(TAGS_METADATA_JOIN + "." + Metadata.KEY.name).eq(TaskToTagMetadata.KEY), //$NON-NLS-1$
-                Field.field(TAGS_METADATA_JOIN + "." + Metadata.DELETION_DATE.name).eq(0),
-                Task.ID.eq(Field.field(TAGS_METADATA_JOIN + "." + Metadata.TASK.name)));
-        if (tagName != null) {
-            tagsJoinCriterion = Criterion.and(tagsJoinCriterion, Field.field(TAGS_METADATA_JOIN + "." + TaskToTagMetadata.TAG_NAME.name).neq(tagName));
-        }
-
+    private void constructQuery() {
         // TODO: For now, we'll modify the query to join and include the things like tag data here.
         // Eventually, we might consider restructuring things so that this query is constructed elsewhere.
-        String joinedQuery =
-                Join.left(Metadata.TABLE.as(TAGS_METADATA_JOIN),
-                        tagsJoinCriterion).toString() //$NON-NLS-1$
-                + Join.left(TaskAttachment.TABLE.as(FILE_METADATA_JOIN), Task.UUID.eq(Field.field(FILE_METADATA_JOIN + "." + TaskAttachment.TASK_UUID.name)))
-                + filter.getSqlQuery();
+        rowJoins =
+                Join.left(TaskTagSummary.TABLE, Task.ID.eq(TaskTagSummary.TASK)).toString() //$NON-NLS-1$
+                + Join.left(TaskAttachment.TABLE.as(FILE_METADATA_JOIN), Task.UUID.eq(Field.field(FILE_METADATA_JOIN + "." + TaskAttachment.TASK_UUID.name)));
+        String joinedQuery = rowJoins + filter.getSqlQuery();
 
         sqlQueryTemplate.set(SortHelper.adjustQueryForFlagsAndSort(
                 joinedQuery, sortFlags, sortSort));
@@ -710,43 +945,40 @@ public class TaskListFragment extends InjectingListFragment implements OnSortSel
             groupedQuery = sqlQueryTemplate.get() + " GROUP BY " + Task.ID;
         }
         sqlQueryTemplate.set(groupedQuery);
-
-        // Peform query
-        try {
-            return taskService.fetchFiltered(
-                sqlQueryTemplate.get(), null, taskProperties());
-        } catch (SQLiteException e) {
-            // We don't show this error anymore--seems like this can get triggered
-            // by a strange bug, but there seems to not be any negative side effect.
-            // For now, we'll suppress the error
-            // See http://astrid.com/home#tags-7tsoi/task-1119pk
-            log.error(e.getMessage(), e);
-            return null;
-        }
     }
 
     public void reconstructCursor() {
-        TodorooCursor<Task> cursor = constructCursor();
-        if (cursor == null || taskAdapter == null) {
+        if (taskAdapter == null) {
             return;
         }
-        taskAdapter.changeCursor(cursor);
+        constructQuery();
+        startLoading();
     }
 
     /**
-     * Select a custom task id in the list. If it doesn't exist, create a new
-     * custom filter
+     * Select a custom task id in the list. If it isn't in the current rows,
+     * e.g. a task that was just created, it is selected when the list has
+     * been loaded again
      */
     public void selectCustomId(long withCustomId) {
-        // if already in the list, select it
-        TodorooCursor<Task> currentCursor = (TodorooCursor<Task>) taskAdapter.getCursor();
-        for (int i = 0; i < currentCursor.getCount(); i++) {
-            currentCursor.moveToPosition(i);
-            if (currentCursor.get(Task.ID) == withCustomId) {
+        pendingSelectId = withCustomId;
+        if (taskAdapter != null && select((TodorooCursor<Task>) taskAdapter.getCursor(), withCustomId)) {
+            pendingSelectId = Task.NO_ID;
+        }
+    }
+
+    private boolean select(TodorooCursor<Task> cursor, long id) {
+        if (cursor == null) {
+            return false;
+        }
+        for (int i = 0; i < cursor.getCount(); i++) {
+            cursor.moveToPosition(i);
+            if (cursor.get(Task.ID) == id) {
                 getListView().setSelection(i);
-                return;
+                return true;
             }
         }
+        return false;
     }
 
     /*
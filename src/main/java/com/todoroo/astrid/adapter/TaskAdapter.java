@@ -42,13 +42,14 @@ import com.todoroo.astrid.api.TaskAction;
 import com.todoroo.astrid.core.LinkActionExposer;
 import com.todoroo.astrid.dao.TaskAttachmentDao;
 import com.todoroo.astrid.data.RemoteModel;
+import com.todoroo.astrid.data.TagData;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskAttachment;
 import com.todoroo.astrid.files.FilesAction;
 import com.todoroo.astrid.files.FilesControlSet;
 import com.todoroo.astrid.notes.NotesAction;
 import com.todoroo.astrid.service.TaskService;
-import com.todoroo.astrid.tags.TaskToTagMetadata;
+import com.todoroo.astrid.tags.TaskTagSummary;
 import com.todoroo.astrid.ui.CheckableImageView;
 
 import org.slf4j.Logger;
@@ -56,10 +57,13 @@ import org.slf4j.LoggerFactory;
 import org.tasks.R;
 import org.tasks.preferences.ActivityPreferences;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastGingerbread;
 import static org.tasks.date.DateTimeUtils.newDate;
@@ -78,7 +82,7 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
         public void onCompletedTask(Task item, boolean newState);
     }
 
-    private static final StringProperty TAGS = new StringProperty(null, "group_concat(nullif(" + TaskListFragment.TAGS_METADATA_JOIN + "." + TaskToTagMetadata.TAG_NAME.name + ", '')"+ ", '  |  ')").as("tags");
+    private static final StringProperty TAGS = TaskTagSummary.TAGS.as("tags");
     private static final LongProperty FILE_ID_PROPERTY = TaskAttachment.ID.cloneAs(TaskListFragment.FILE_METADATA_JOIN, "fileId");
     private static final IntegerProperty HAS_NOTES_PROPERTY = new IntegerProperty(null, "length(" + Task.NOTES + ") > 0").as("hasNotes");
 
@@ -171,6 +175,9 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
 
     private final Map<Long, TaskAction> taskActionLoader = Collections.synchronizedMap(new HashMap<Long, TaskAction>());
 
+    /** Rows re-read since the cursor was last queried, keyed by task id */
+    private final Map<Long, UpdatedRow> updatedRows = new HashMap<>();
+
     public TaskAdapter(Context context, ActivityPreferences preferences, TaskAttachmentDao taskAttachmentDao, TaskService taskService, TaskListFragment fragment,
             Cursor c, AtomicReference<String> query, OnCompletedTaskListener onCompletedTaskListener) {
         super(context, c, false);
@@ -287,12 +294,20 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
         TodorooCursor<Task> cursor = (TodorooCursor<Task>)c;
         ViewHolder viewHolder = ((ViewHolder)view.getTag());
 
-        viewHolder.tagsString = cursor.get(TAGS);
-        viewHolder.hasFiles = cursor.get(FILE_ID_PROPERTY) > 0;
-        viewHolder.hasNotes = cursor.get(HAS_NOTES_PROPERTY) > 0;
+        UpdatedRow updatedRow = updatedRows.isEmpty() ? null : updatedRows.get(cursor.get(Task.ID));
+        if (updatedRow != null) {
+            viewHolder.tagsString = withoutActiveTag(updatedRow.tagsString);
+            viewHolder.hasFiles = updatedRow.hasFiles;
+            viewHolder.hasNotes = updatedRow.hasNotes;
+            viewHolder.task = (Task) updatedRow.task.clone();
+        } else {
+            viewHolder.tagsString = withoutActiveTag(cursor.get(TAGS));
+            viewHolder.hasFiles = cursor.get(FILE_ID_PROPERTY) > 0;
+            viewHolder.hasNotes = cursor.get(HAS_NOTES_PROPERTY) > 0;
 
-        // TODO: see if this is a performance issue
-        viewHolder.task = new Task(cursor);
+            // TODO: see if this is a performance issue
+            viewHolder.task = new Task(cursor);
+        }
 
         setFieldContentsAndVisibility(view);
         setTaskAppearance(viewHolder, viewHolder.task);
@@ -311,6 +326,44 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
         }
     }
 
+    /** Drops the tag being viewed from a task's tag summary */
+    private String withoutActiveTag(String tags) {
+        TagData activeTag = fragment.getActiveTagData();
+        if (tags == null || activeTag == null) {
+            return tags;
+        }
+        String tagName = activeTag.getName();
+        List<String> names = new ArrayList<>();
+        for (String name : tags.split(Pattern.quote(TaskTagSummary.SEPARATOR))) {
+            if (!name.equals(tagName)) {
+                names.add(name);
+            }
+        }
+        return names.isEmpty() ? null : TextUtils.join(TaskTagSummary.SEPARATOR, names);
+    }
+
+    /**
+     * Row contents read outside of the adapter's cursor
+     */
+    public static class UpdatedRow {
+        private final Task task;
+        private final String tagsString;
+        private final boolean hasFiles;
+        private final boolean hasNotes;
+
+        /** Reads the current row of a cursor selecting {@link #PROPERTIES} */
+        public UpdatedRow(TodorooCursor<Task> cursor) {
+            task = new Task(cursor);
+            tagsString = cursor.get(TAGS);
+            hasFiles = cursor.get(FILE_ID_PROPERTY) > 0;
+            hasNotes = cursor.get(HAS_NOTES_PROPERTY) > 0;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+    }
+
     /**
      * View Holder saves a lot of findViewById lookups.
      *
@@ -527,6 +580,19 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
      */
     public void flushCaches() {
         completedItems.clear();
+        updatedRows.clear();
+    }
+
+    /**
+     * Show the given contents for a task until the cursor is next requeried.
+     * Caller is responsible for calling notifyDataSetChanged
+     */
+    public void updateRow(UpdatedRow row) {
+        long taskId = row.task.getId();
+        updatedRows.put(taskId, row);
+        taskActionLoader.remove(taskId);
+        completedItems.remove(taskId);
+        completedItems.remove(row.task.getUuid());
     }
 
     public HashMap<Object, Boolean> getCompletedItems() {
@@ -537,6 +603,12 @@ public class TaskAdapter extends CursorAdapter implements Filterable {
      * ======================================================= event handlers
      * ====================================================================== */
 
+    @Override
+    public void changeCursor(Cursor cursor) {
+        updatedRows.clear();
+        super.changeCursor(cursor);
+    }
+
     @Override
     public void notifyDataSetChanged() {
         super.notifyDataSetChanged();
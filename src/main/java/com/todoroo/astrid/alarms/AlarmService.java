@@ -5,11 +5,7 @@
  */
 package com.todoroo.astrid.alarms;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.ContentValues;
-import android.content.Context;
-import android.content.Intent;
 
 import com.todoroo.andlib.data.Callback;
 import com.todoroo.andlib.sql.Criterion;
@@ -22,12 +18,9 @@ import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.Task;
-import com.todoroo.astrid.reminders.Notifications;
-import com.todoroo.astrid.reminders.ReminderService;
+import com.todoroo.astrid.reminders.ReminderQueue;
 import com.todoroo.astrid.service.SynchronizeMetadataCallback;
 
-import org.tasks.injection.ForApplication;
-
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -49,7 +42,7 @@ public class AlarmService {
     private static final long NO_ALARM = Long.MAX_VALUE;
 
     private final MetadataDao metadataDao;
-    private final Context context;
+    private final ReminderQueue reminderQueue;
     private final Callback<Metadata> scheduleAlarm = new Callback<Metadata>() {
         @Override
         public void apply(Metadata alarm) {
@@ -58,9 +51,9 @@ public class AlarmService {
     };
 
     @Inject
-    public AlarmService(MetadataDao metadataDao, @ForApplication Context context) {
+    public AlarmService(MetadataDao metadataDao, ReminderQueue reminderQueue) {
         this.metadataDao = metadataDao;
-        this.context = context;
+        this.reminderQueue = reminderQueue;
     }
 
     public void getAlarms(long taskId, Callback<Metadata> callback) {
@@ -83,14 +76,10 @@ public class AlarmService {
             metadata.add(item);
         }
 
-        final AlarmManager am = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
-
         boolean changed = synchronizeMetadata(taskId, metadata, new SynchronizeMetadataCallback() {
             @Override
             public void beforeDeleteMetadata(Metadata m) {
-                // Cancel the alarm before the metadata is deleted
-                PendingIntent pendingIntent = pendingIntentForAlarm(m, taskId);
-                am.cancel(pendingIntent);
+                reminderQueue.removeAlarm(taskId, m.getId());
             }
         });
 
@@ -116,10 +105,16 @@ public class AlarmService {
     }
 
     /**
-     * Schedules all alarms
+     * Queues all alarms, replacing the queued ones
      */
     public void scheduleAllAlarms() {
-        getActiveAlarms(scheduleAlarm);
+        metadataDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                reminderQueue.clearAlarms();
+                getActiveAlarms(scheduleAlarm);
+            }
+        });
     }
 
     /**
@@ -129,16 +124,6 @@ public class AlarmService {
         getActiveAlarmsForTask(taskId, scheduleAlarm);
     }
 
-    private PendingIntent pendingIntentForAlarm(Metadata alarm, long taskId) {
-        Intent intent = new Intent(context, Notifications.class);
-        intent.setAction("ALARM" + alarm.getId()); //$NON-NLS-1$
-        intent.putExtra(Notifications.ID_KEY, taskId);
-        intent.putExtra(Notifications.EXTRAS_TYPE, ReminderService.TYPE_ALARM);
-
-        return PendingIntent.getBroadcast(context, (int)alarm.getId(),
-                intent, PendingIntent.FLAG_UPDATE_CURRENT);
-    }
-
     /**
      * Schedules alarms for a single task
      */
@@ -149,14 +134,11 @@ public class AlarmService {
 
         long taskId = alarm.getTask();
 
-        AlarmManager am = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pendingIntent = pendingIntentForAlarm(alarm, taskId);
-
         long time = alarm.getValue(AlarmFields.TIME);
         if(time == 0 || time == NO_ALARM) {
-            am.cancel(pendingIntent);
+            reminderQueue.removeAlarm(taskId, alarm.getId());
         } else if(time > DateUtilities.now()) {
-            am.set(AlarmManager.RTC_WAKEUP, time, pendingIntent);
+            reminderQueue.addAlarm(taskId, alarm.getId(), time);
         }
     }
 
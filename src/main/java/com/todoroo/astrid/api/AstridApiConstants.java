@@ -60,6 +60,11 @@ public class AstridApiConstants {
      */
     public static final String EXTRAS_NEW_DUE_DATE = "newDueDate";
 
+    /**
+     * Extras name for the names of the task columns changed by a save
+     */
+    public static final String EXTRAS_CHANGED_COLUMNS = "changedColumns";
+
     // -- Custom criteria API
 
     /**
@@ -79,6 +84,8 @@ public class AstridApiConstants {
 
     /**
      * Action name for broadcast intent notifying Astrid task list to refresh
+     * <li> EXTRAS_TASK_ID id of the task, if a single existing task was updated
+     * <li> EXTRAS_CHANGED_COLUMNS columns changed on that task
      */
     public static final String BROADCAST_EVENT_REFRESH = BuildConfig.APPLICATION_ID + ".REFRESH";
 
@@ -24,6 +24,7 @@ import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.api.AstridApiConstants;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.TagDataDao;
 import com.todoroo.astrid.data.Metadata;
@@ -41,6 +42,7 @@ import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.inject.Inject;
 
@@ -48,14 +50,20 @@ public class TasksXmlImporter {
 
     private static final Logger log = LoggerFactory.getLogger(TasksXmlImporter.class);
 
+    /** Tasks imported per transaction */
+    private static final int CHUNK_SIZE = 100;
+
     private final TagDataDao tagDataDao;
     private final MetadataDao metadataDao;
     private final TaskService taskService;
+    private final Database database;
 
     private Context context;
     private Handler handler;
     private int taskCount;
     private int importCount = 0;
+    /** Tasks saved in the current chunk, counted as imported once it commits */
+    private int chunkImportCount = 0;
     private int skipCount = 0;
     private int errorCount = 0;
     private ProgressDialog progressDialog;
@@ -72,10 +80,12 @@ public class TasksXmlImporter {
     }
 
     @Inject
-    public TasksXmlImporter(TagDataDao tagDataDao, MetadataDao metadataDao, TaskService taskService) {
+    public TasksXmlImporter(TagDataDao tagDataDao, MetadataDao metadataDao, TaskService taskService,
+                            Database database) {
         this.tagDataDao = tagDataDao;
         this.metadataDao = metadataDao;
         this.taskService = taskService;
+        this.database = database;
     }
 
     /**
@@ -111,6 +121,8 @@ public class TasksXmlImporter {
                     performImport();
                 } catch (IOException | XmlPullParserException e) {
                     log.error(e.getMessage(), e);
+                } finally {
+                    onImportFinished();
                 }
             }
         }).start();
@@ -121,44 +133,44 @@ public class TasksXmlImporter {
         XmlPullParser xpp = factory.newPullParser();
         xpp.setInput(new FileReader(input));
 
-        try {
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
-                String tag = xpp.getName();
-                if (xpp.getEventType() == XmlPullParser.END_TAG) {
-                    // Ignore end tags
-                    continue;
-                }
-                if (tag != null) {
-                    // Process <astrid ... >
-                    if (tag.equals(BackupConstants.ASTRID_TAG)) {
-                        String format = xpp.getAttributeValue(null, BackupConstants.ASTRID_ATTR_FORMAT);
-                        if(TextUtils.equals(format, FORMAT2)) {
-                            new Format2TaskImporter(xpp);
-                        } else if(TextUtils.equals(format, FORMAT3)) {
-                            new Format3TaskImporter(xpp);
-                        } else {
-                            throw new UnsupportedOperationException(
-                                    "Did not know how to import tasks with xml format '" +
-                                            format + "'");
-                        }
-                    }
-                }
+        while (xpp.next() != XmlPullParser.END_DOCUMENT) {
+            String tag = xpp.getName();
+            if (xpp.getEventType() == XmlPullParser.END_TAG) {
+                // Ignore end tags
+                continue;
             }
-        } finally {
-            Intent broadcastIntent = new Intent(AstridApiConstants.BROADCAST_EVENT_REFRESH);
-            context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
-            handler.post(new Runnable() {
-                @Override
-                public void run() {
-                    if(progressDialog.isShowing() && context instanceof Activity) {
-                        DialogUtilities.dismissDialog((Activity) context, progressDialog);
+            if (tag != null) {
+                // Process <astrid ... >
+                if (tag.equals(BackupConstants.ASTRID_TAG)) {
+                    String format = xpp.getAttributeValue(null, BackupConstants.ASTRID_ATTR_FORMAT);
+                    if(TextUtils.equals(format, FORMAT2)) {
+                        new Format2TaskImporter(xpp);
+                    } else if(TextUtils.equals(format, FORMAT3)) {
+                        new Format3TaskImporter(xpp);
+                    } else {
+                        throw new UnsupportedOperationException(
+                                "Did not know how to import tasks with xml format '" +
+                                        format + "'");
                     }
-                    showSummary();
                 }
-            });
+            }
         }
     }
 
+    private void onImportFinished() {
+        Intent broadcastIntent = new Intent(AstridApiConstants.BROADCAST_EVENT_REFRESH);
+        context.sendBroadcast(broadcastIntent, AstridApiConstants.PERMISSION_READ);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if(progressDialog.isShowing() && context instanceof Activity) {
+                    DialogUtilities.dismissDialog((Activity) context, progressDialog);
+                }
+                showSummary();
+            }
+        });
+    }
+
     private void showSummary() {
         final AlertDialog.Builder builder = new AlertDialog.Builder(context);
         builder.setTitle(R.string.import_summary_title);
@@ -196,29 +208,88 @@ public class TasksXmlImporter {
         protected Metadata metadata = new Metadata();
         protected TagData tagdata = new TagData();
 
+        /** The parser is on a task tag that starts the next chunk */
+        private boolean atTask;
+
         public Format2TaskImporter() { }
-        public Format2TaskImporter(XmlPullParser xpp) throws XmlPullParserException, IOException {
+        public Format2TaskImporter(XmlPullParser xpp) {
             this.xpp = xpp;
+            importChunks();
+        }
+
+        /**
+         * Commit every {@link #CHUNK_SIZE} tasks, so readers aren't blocked
+         * for the whole import and a failure keeps the earlier chunks. Tasks
+         * of a chunk that rolls back are counted as errors.
+         */
+        protected void importChunks() {
+            final AtomicBoolean more = new AtomicBoolean(true);
+            while (more.get()) {
+                more.set(false);
+                chunkImportCount = 0;
+                try {
+                    taskService.runInTransaction(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                more.set(parseChunk());
+                            } catch (IOException | XmlPullParserException e) {
+                                // keep what was read so far
+                                log.error(e.getMessage(), e);
+                            }
+                            database.afterCommit(new Runnable() {
+                                @Override
+                                public void run() {
+                                    importCount += chunkImportCount;
+                                    chunkImportCount = 0;
+                                }
+                            });
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    log.error(e.getMessage(), e);
+                }
+                errorCount += chunkImportCount;
+            }
+        }
 
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
+        /**
+         * Parse elements until {@link #CHUNK_SIZE} tasks have been read. A
+         * task's metadata follows it, so chunks end before a task tag.
+         *
+         * @return false at the end of the document
+         */
+        private boolean parseChunk() throws XmlPullParserException, IOException {
+            int tasks = 0;
+            while (atTask || xpp.next() != XmlPullParser.END_DOCUMENT) {
+                atTask = false;
                 String tag = xpp.getName();
                 if (tag == null || xpp.getEventType() == XmlPullParser.END_TAG) {
                     continue;
                 }
+                if (tag.equals(BackupConstants.TASK_TAG) && tasks++ == CHUNK_SIZE) {
+                    atTask = true;
+                    return true;
+                }
 
                 try {
-                    if (tag.equals(BackupConstants.TASK_TAG)) {
-                        // Parse <task ... >
-                        parseTask();
-                    } else if (tag.equals(BackupConstants.METADATA_TAG)) {
-                        // Process <metadata ... >
-                        parseMetadata(2);
-                    }
+                    parseElement(tag);
                 } catch (Exception e) {
                     errorCount++;
                     log.error(e.getMessage(), e);
                 }
             }
+            return false;
+        }
+
+        protected void parseElement(String tag) {
+            if (tag.equals(BackupConstants.TASK_TAG)) {
+                // Parse <task ... >
+                parseTask();
+            } else if (tag.equals(BackupConstants.METADATA_TAG)) {
+                // Process <metadata ... >
+                parseMetadata(2);
+            }
         }
 
         protected void parseTask() {
@@ -265,7 +336,7 @@ public class TasksXmlImporter {
 
             // Save the task to the database.
             taskService.save(currentTask);
-            importCount++;
+            chunkImportCount++;
         }
 
         protected void parseMetadata(int format) {
@@ -365,30 +436,23 @@ public class TasksXmlImporter {
     private static final String FORMAT3 = "3"; //$NON-NLS-1$
     private class Format3TaskImporter extends Format2TaskImporter {
 
-        public Format3TaskImporter(XmlPullParser xpp) throws XmlPullParserException, IOException {
+        public Format3TaskImporter(XmlPullParser xpp) {
             this.xpp = xpp;
-            while (xpp.next() != XmlPullParser.END_DOCUMENT) {
-                String tag = xpp.getName();
-                if (tag == null || xpp.getEventType() == XmlPullParser.END_TAG) {
-                    continue;
-                }
+            importChunks();
+        }
 
-                try {
-                    switch (tag) {
-                        case BackupConstants.TASK_TAG:
-                            parseTask();
-                            break;
-                        case BackupConstants.METADATA_TAG:
-                            parseMetadata(3);
-                            break;
-                        case BackupConstants.TAGDATA_TAG:
-                            parseTagdata();
-                            break;
-                    }
-                } catch (Exception e) {
-                    errorCount++;
-                    log.error(e.getMessage(), e);
-                }
+        @Override
+        protected void parseElement(String tag) {
+            switch (tag) {
+                case BackupConstants.TASK_TAG:
+                    parseTask();
+                    break;
+                case BackupConstants.METADATA_TAG:
+                    parseMetadata(3);
+                    break;
+                case BackupConstants.TAGDATA_TAG:
+                    parseTagdata();
+                    break;
             }
         }
 
@@ -9,9 +9,14 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteQuery;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import com.todoroo.andlib.data.AbstractModel;
@@ -26,12 +31,19 @@ import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.TaskAttachment;
 import com.todoroo.astrid.data.TaskListMetadata;
 import com.todoroo.astrid.data.UserActivity;
+import com.todoroo.astrid.gtasks.GtasksTable;
+import com.todoroo.astrid.gtasks.sync.GtasksDirtyTasks;
+import com.todoroo.astrid.gtasks.sync.GtasksOutbox;
+import com.todoroo.astrid.reminders.ReminderQueue;
+import com.todoroo.astrid.tags.TaskTagSummary;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.injection.ForApplication;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -46,7 +58,7 @@ import javax.inject.Singleton;
 public class Database {
 
     private static final Logger log = LoggerFactory.getLogger(Database.class);
-    private static final int VERSION = 35;
+    private static final int VERSION = 42;
     private static final String NAME = "database";
     private static final Table[] TABLES =  new Table[] {
             Task.TABLE,
@@ -59,8 +71,10 @@ public class Database {
     };
 
     private final ArrayList<DatabaseUpdateListener> listeners = new ArrayList<>();
+    private final ThreadLocal<PendingNotifications> pendingNotifications = new ThreadLocal<>();
     private final SQLiteOpenHelper helper;
     private SQLiteDatabase database;
+    private volatile long openTime;
 
     // --- listeners
 
@@ -75,6 +89,12 @@ public class Database {
         return NAME;
     }
 
+    /** Indexes for finding the next due date or hide until date to refresh at */
+    private static final String CREATE_DUE_DATE_INDEX = "CREATE INDEX IF NOT EXISTS t_due ON " +
+            Task.TABLE.name + "(" + Task.DUE_DATE.name + ")";
+    private static final String CREATE_HIDE_UNTIL_INDEX = "CREATE INDEX IF NOT EXISTS t_hide ON " +
+            Task.TABLE.name + "(" + Task.HIDE_UNTIL.name + ")";
+
     /**
      * Create indices
      */
@@ -109,11 +129,67 @@ public class Database {
         append(')');
         database.execSQL(sql.toString());
         sql.setLength(0);
+
+        database.execSQL(CREATE_DUE_DATE_INDEX);
+        database.execSQL(CREATE_HIDE_UNTIL_INDEX);
+
+        for (String tagSummarySql : TaskTagSummary.createSql()) {
+            database.execSQL(tagSummarySql);
+        }
+
+        for (String gtasksSql : GtasksTable.createSql()) {
+            database.execSQL(gtasksSql);
+        }
+
+        for (String outboxSql : GtasksOutbox.createSql()) {
+            database.execSQL(outboxSql);
+        }
+
+        for (String dirtySql : GtasksDirtyTasks.createSql()) {
+            database.execSQL(dirtySql);
+        }
+
+        for (String reminderSql : ReminderQueue.createSql()) {
+            database.execSQL(reminderSql);
+        }
     }
 
     private boolean onUpgrade(int oldVersion, int newVersion) {
         SqlConstructorVisitor visitor = new SqlConstructorVisitor();
         switch(oldVersion) {
+        case 35:
+            for (String sql : TaskTagSummary.createSql()) {
+                tryExecSQL(sql);
+            }
+            tryExecSQL(TaskTagSummary.populateSql());
+        case 36:
+            for (String sql : GtasksTable.createSql()) {
+                tryExecSQL(sql);
+            }
+            tryExecSQL(GtasksTable.populateSql());
+        case 37:
+            for (String sql : GtasksOutbox.createSql()) {
+                tryExecSQL(sql);
+            }
+        case 38:
+            for (String sql : GtasksDirtyTasks.createSql()) {
+                tryExecSQL(sql);
+            }
+            tryExecSQL(GtasksDirtyTasks.populateSql());
+        case 39:
+            for (String sql : ReminderQueue.createSql()) {
+                tryExecSQL(sql);
+            }
+        case 40:
+            tryExecSQL(CREATE_DUE_DATE_INDEX);
+            tryExecSQL(CREATE_HIDE_UNTIL_INDEX);
+        case 41:
+            tryExecSQL(ReminderQueue.dropSql());
+            for (String sql : ReminderQueue.createSql()) {
+                tryExecSQL(sql);
+            }
+
+            return true;
         }
 
         return false;
@@ -174,11 +250,87 @@ public class Database {
     }
 
     private void onDatabaseUpdated() {
+        PendingNotifications pending = pendingNotifications.get();
+        if (pending != null) {
+            pending.databaseUpdated = true;
+            return;
+        }
         for(DatabaseUpdateListener listener : listeners) {
             listener.onDatabaseUpdated();
         }
     }
 
+    // --- transactions
+
+    /**
+     * Run the given operation inside a single database transaction. Listener
+     * notifications raised by writes inside the transaction are deferred until
+     * the outermost transaction commits, and database update notifications are
+     * coalesced into one. If the operation throws, the transaction is rolled
+     * back and deferred notifications are discarded, even if an enclosing
+     * transaction catches the exception.
+     */
+    public void runInTransaction(Runnable runnable) {
+        SQLiteDatabase db = getDatabase();
+        PendingNotifications pending = pendingNotifications.get();
+        boolean outermost = pending == null;
+        if (outermost) {
+            pending = new PendingNotifications();
+            pendingNotifications.set(pending);
+        }
+        boolean successful = false;
+        db.beginTransaction();
+        try {
+            runnable.run();
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            try {
+                db.endTransaction();
+            } finally {
+                if (!successful) {
+                    // sqlite rolls back the outermost transaction as well
+                    pending.rolledBack = true;
+                }
+                if (outermost) {
+                    pendingNotifications.remove();
+                    if (!pending.rolledBack) {
+                        pending.dispatch();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the given notification once the current transaction commits, or
+     * immediately if this thread is not inside {@link #runInTransaction}.
+     * A notification added more than once in a transaction runs once.
+     */
+    public void afterCommit(Runnable notification) {
+        PendingNotifications pending = pendingNotifications.get();
+        if (pending == null) {
+            notification.run();
+        } else {
+            pending.afterCommit.add(notification);
+        }
+    }
+
+    private class PendingNotifications {
+        private final Set<Runnable> afterCommit = new LinkedHashSet<>();
+        private boolean databaseUpdated;
+        private boolean rolledBack;
+
+        private void dispatch() {
+            for (Runnable notification : afterCommit) {
+                notification.run();
+            }
+            if (databaseUpdated) {
+                onDatabaseUpdated();
+            }
+        }
+    }
+
     /**
      * Return the name of the table containing these models
      */
@@ -200,8 +352,11 @@ public class Database {
             return;
         }
 
+        long start = SystemClock.elapsedRealtime();
         try {
             database = helper.getWritableDatabase();
+            openTime = SystemClock.elapsedRealtime() - start;
+            log.info("Opened {} in {}ms", getName(), openTime);
         } catch (NullPointerException e) {
             log.error(e.getMessage(), e);
             throw new IllegalStateException(e);
@@ -243,12 +398,38 @@ public class Database {
      */
     public synchronized final SQLiteDatabase getDatabase() {
         if(database == null) {
-            AndroidUtilities.sleepDeep(300L);
             openForWriting();
         }
         return database;
     }
 
+    /**
+     * Open the database on a background thread so the first query doesn't
+     * pay for opening or upgrading it. Callers that need the database in the
+     * meantime block until it is ready.
+     */
+    public void openInBackground() {
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    openForWriting();
+                } catch (Exception e) {
+                    // getDatabase will retry and report the failure to its caller
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * @return milliseconds taken by the last call that opened the database
+     * for writing, including any upgrade
+     */
+    public long getOpenTime() {
+        return openTime;
+    }
+
     /**
      * @return human-readable database name for debugging
      */
@@ -263,6 +444,53 @@ public class Database {
         return getDatabase().rawQuery(sql, null);
     }
 
+    /**
+     * Run a parameterized query. Arguments are bound with their own types so
+     * results match the equivalent query with inlined literals, and the
+     * compiled statement is reused from the connection's statement cache.
+     */
+    public Cursor rawQuery(String sql, final Object[] bindArgs) {
+        if (bindArgs == null || bindArgs.length == 0) {
+            return rawQuery(sql);
+        }
+        return getDatabase().rawQueryWithFactory(new SQLiteDatabase.CursorFactory() {
+            @Override
+            public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable, SQLiteQuery query) {
+                bind(query, bindArgs);
+                return AndroidUtilities.atLeastHoneycomb()
+                        ? new SQLiteCursor(masterQuery, editTable, query)
+                        : new SQLiteCursor(db, masterQuery, editTable, query);
+            }
+        }, sql, null, null);
+    }
+
+    private static void bind(SQLiteProgram program, Object[] bindArgs) {
+        for (int i = 0 ; i < bindArgs.length ; i++) {
+            Object arg = bindArgs[i];
+            if (arg == null) {
+                program.bindNull(i + 1);
+            } else if (arg instanceof Long || arg instanceof Integer) {
+                program.bindLong(i + 1, ((Number) arg).longValue());
+            } else if (arg instanceof Double) {
+                program.bindDouble(i + 1, (Double) arg);
+            } else {
+                program.bindString(i + 1, arg.toString());
+            }
+        }
+    }
+
+    /**
+     * Execute a parameterized statement that returns no data. Listeners are
+     * not notified, so this is meant for bookkeeping tables.
+     */
+    public void execSQL(String sql, Object[] bindArgs) {
+        if (bindArgs == null) {
+            getDatabase().execSQL(sql);
+        } else {
+            getDatabase().execSQL(sql, bindArgs);
+        }
+    }
+
     public long insert(String table, String nullColumnHack, ContentValues values) {
         long result;
         try {
@@ -284,7 +512,11 @@ public class Database {
     }
 
     public int update(String  table, ContentValues  values, String whereClause) {
-        int result = getDatabase().update(table, values, whereClause, null);
+        return update(table, values, whereClause, null);
+    }
+
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        int result = getDatabase().update(table, values, whereClause, whereArgs);
         onDatabaseUpdated();
         return result;
     }
@@ -328,6 +560,15 @@ public class Database {
             onCreateTables();
         }
 
+        @Override
+        public void onOpen(SQLiteDatabase db) {
+            if (AndroidUtilities.atLeastHoneycomb()) {
+                // parameterized queries share sql text, so keep as many
+                // compiled statements around as sqlite allows
+                db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+            }
+        }
+
         /**
          * Called to upgrade the database to a new version
          */
@@ -76,6 +76,10 @@ public class MetadataDao {
         return dao.fetch(id, properties);
     }
 
+    public void runInTransaction(Runnable runnable) {
+        dao.runInTransaction(runnable);
+    }
+
     // --- SQL clause generators
 
     /**
@@ -31,6 +31,7 @@ import org.tasks.notifications.NotificationManager;
 import org.tasks.preferences.Preferences;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -104,6 +105,10 @@ public class TaskDao {
         dao.persist(task);
     }
 
+    public void runInTransaction(Runnable runnable) {
+        dao.runInTransaction(runnable);
+    }
+
     // --- SQL clause generators
 
     /**
@@ -232,7 +237,7 @@ public class TaskDao {
         ContentValues values = item.getSetValues();
         boolean result = dao.createNew(item);
         if(result) {
-            afterSave(item, values);
+            afterSave(item, values, true);
         }
 
         return result;
@@ -272,7 +277,7 @@ public class TaskDao {
         }
         boolean result = dao.saveExisting(item);
         if(result) {
-            afterSave(item, values);
+            afterSave(item, values, false);
         }
         return result;
     }
@@ -352,7 +357,7 @@ public class TaskDao {
      * TaskApiDao in that it runs hooks that need to be run from within
      * Astrid. Order matters here!
      */
-    private void afterSave(Task task, ContentValues values) {
+    private void afterSave(Task task, ContentValues values, boolean created) {
         if(values == null) {
             return;
         }
@@ -378,15 +383,16 @@ public class TaskDao {
         }
 
         // run api save hooks
-        broadcastTaskSave(task, values);
+        broadcastTaskSave(task, values, created);
     }
 
     /**
      * Send broadcasts on task change (triggers things like task repeats)
      * @param task task that was saved
      * @param values values that were updated
+     * @param created whether the task was just inserted
      */
-    private void broadcastTaskSave(Task task, ContentValues values) {
+    private void broadcastTaskSave(Task task, ContentValues values, boolean created) {
         if(TaskApiDao.insignificantChange(values)) {
             return;
         }
@@ -395,7 +401,21 @@ public class TaskDao {
             broadcaster.taskCompleted(task.getId());
         }
 
-        broadcastTaskChanged();
+        if (created) {
+            broadcastTaskChanged();
+        } else {
+            // lets the task list patch the row in place when the list doesn't depend on these columns
+            broadcaster.taskUpdated(task.getId(), columnNames(values));
+        }
+    }
+
+    private static String[] columnNames(ContentValues values) {
+        String[] columns = new String[values.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            columns[i++] = entry.getKey();
+        }
+        return columns;
     }
 
     /**
@@ -412,6 +432,7 @@ public class TaskDao {
         long taskId = task.getId();
         notificationManager.cancel(taskId);
         geofenceService.cancelGeofences(taskId);
+        reminderService.clearAllAlarms(task);
     }
 }
 
@@ -11,20 +11,23 @@ import android.text.TextUtils;
 import com.todoroo.andlib.data.AbstractModel;
 import com.todoroo.andlib.data.Callback;
 import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Field;
-import com.todoroo.andlib.sql.Functions;
+import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.dao.MetadataDao;
 import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Metadata;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gtasks.sync.GtasksTaskContainer;
 import com.todoroo.astrid.gtasks.OrderedMetadataListUpdater.OrderedListIterator;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -64,7 +67,13 @@ public final class GtasksMetadataService {
     public void saveTaskAndMetadata(GtasksTaskContainer task) {
         task.prepareForSaving();
         taskDao.save(task.task);
-        synchronizeMetadata(task.task.getId(), task.metadata, getMetadataKey());
+        Metadata gtaskMetadata = task.gtaskMetadata;
+        if (task.metadata.size() == 1 && gtaskMetadata.isSaved() && gtaskMetadata.getTask() == task.task.getId()) {
+            // matched an existing row, only write what changed
+            metadataDao.saveExisting(gtaskMetadata);
+        } else {
+            synchronizeMetadata(task.task.getId(), task.metadata, getMetadataKey());
+        }
     }
 
     /**
@@ -139,39 +148,64 @@ public final class GtasksMetadataService {
         return metadata == null ? AbstractModel.NO_ID : metadata.getTask();
     }
 
+    /**
+     * @return gtasks metadata for the given remote ids, keyed by remote id
+     */
+    public Map<String, Metadata> getMetadataByGtaskIds(Collection<String> gtaskIds) {
+        final Map<String, Metadata> result = new HashMap<>();
+        if (gtaskIds.isEmpty()) {
+            return result;
+        }
+        metadataDao.query(Query.select(Metadata.PROPERTIES)
+                .join(Join.inner(GtasksTable.TABLE, Metadata.ID.eq(GtasksTable.METADATA)))
+                .where(GtasksTable.REMOTE_ID.in(gtaskIds.toArray(new String[gtaskIds.size()]))), new Callback<Metadata>() {
+            @Override
+            public void apply(Metadata metadata) {
+                result.put(metadata.getValue(GtasksMetadata.ID), metadata);
+            }
+        });
+        return result;
+    }
+
     private Metadata getMetadataByGtaskId(String gtaskId) {
-        return metadataDao.getFirst(Query.select(Metadata.PROPERTIES).where(Criterion.and(
-                Metadata.KEY.eq(getMetadataKey()),
-                GtasksMetadata.ID.eq(gtaskId))));
+        return metadataDao.getFirst(Query.select(Metadata.PROPERTIES)
+                .join(Join.inner(GtasksTable.TABLE, Metadata.ID.eq(GtasksTable.METADATA)))
+                .where(GtasksTable.REMOTE_ID.eq(gtaskId)));
     }
 
     // --- list iterating helpers
 
     public void iterateThroughList(GtasksList list, OrderedListIterator iterator) {
         String listId = list.getRemoteId();
-        iterateThroughList(listId, iterator, 0, false);
+        iterateThroughList(listId, iterator, 0, false, false);
     }
 
-    private void iterateThroughList(String listId, final OrderedListIterator iterator, long startAtOrder, boolean reverse) {
-        Field orderField = Functions.cast(GtasksMetadata.ORDER, "LONG");
-        Order order = reverse ? Order.desc(orderField) : Order.asc(orderField);
-        Criterion startAtCriterion = reverse ?  Functions.cast(GtasksMetadata.ORDER, "LONG").lt(startAtOrder) :
-            Functions.cast(GtasksMetadata.ORDER, "LONG").gt(startAtOrder - 1);
-
-        Query query = Query.select(Metadata.PROPERTIES).where(Criterion.and(
-                        MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY),
-                        GtasksMetadata.LIST_ID.eq(listId),
-                        startAtCriterion)).
-                        orderBy(order);
+    /**
+     * Visits the list's metadata in order with a single query
+     *
+     * @param activeTasksOnly skip metadata whose task is missing or deleted
+     */
+    private void iterateThroughList(String listId, final OrderedListIterator iterator, long startAtOrder,
+                                    boolean reverse, boolean activeTasksOnly) {
+        Order order = reverse ? Order.desc(GtasksTable.ORDER) : Order.asc(GtasksTable.ORDER);
+        Criterion startAtCriterion = reverse ? GtasksTable.ORDER.lt(startAtOrder) :
+            GtasksTable.ORDER.gt(startAtOrder - 1);
+
+        Query query = Query.select(Metadata.PROPERTIES)
+                .join(Join.inner(GtasksTable.TABLE, Metadata.ID.eq(GtasksTable.METADATA)));
+        if (activeTasksOnly) {
+            query.join(Join.inner(Task.TABLE, Task.ID.eq(Metadata.TASK)));
+            startAtCriterion = Criterion.and(startAtCriterion, TaskCriteria.notDeleted());
+        }
+        query.where(Criterion.and(
+                        GtasksTable.LIST_ID.eq(listId),
+                        startAtCriterion))
+                .orderBy(order);
 
         metadataDao.query(query, new Callback<Metadata>() {
             @Override
             public void apply(Metadata entry) {
-                long taskId = entry.getValue(Metadata.TASK);
-                Metadata metadata = getTaskMetadata(taskId);
-                if(metadata != null) {
-                    iterator.processTask(taskId, metadata);
-                }
+                iterator.processTask(entry.getTask(), entry);
             }
         });
     }
@@ -204,10 +238,6 @@ public final class GtasksMetadataService {
         OrderedListIterator iterator = new OrderedListIterator() {
             @Override
             public void processTask(long taskId, Metadata metadata) {
-                Task t = taskDao.fetch(taskId, Task.TITLE, Task.DELETION_DATE);
-                if (t == null || t.isDeleted()) {
-                    return;
-                }
                 int currIndent = metadata.getValue(GtasksMetadata.INDENT);
                 long currParent = metadata.getValue(GtasksMetadata.PARENT_TASK);
 
@@ -219,7 +249,7 @@ public final class GtasksMetadataService {
             }
         };
 
-        this.iterateThroughList(listId, iterator, gtasksMetadata.getValue(GtasksMetadata.ORDER), true);
+        this.iterateThroughList(listId, iterator, gtasksMetadata.getValue(GtasksMetadata.ORDER), true, true);
         return sibling.get();
     }
 }
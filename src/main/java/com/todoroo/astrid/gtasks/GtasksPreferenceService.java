@@ -27,6 +27,11 @@ public class GtasksPreferenceService {
 
     private static final String PREF_DEFAULT_LIST = IDENTIFIER + "_defaultlist"; //$NON-NLS-1$
     private static final String PREF_USER_NAME = IDENTIFIER + "_user"; //$NON-NLS-1$
+    private static final String PREF_SYNC_CONCURRENCY = IDENTIFIER + "_sync_concurrency"; //$NON-NLS-1$
+    private static final String PREF_QUIET_SYNCS = IDENTIFIER + "_quiet_syncs"; //$NON-NLS-1$
+    private static final String PREF_PAGE_TOKEN = IDENTIFIER + "_page_token_"; //$NON-NLS-1$
+    private static final String PREF_PAGE_UPDATED_MIN = IDENTIFIER + "_page_updated_min_"; //$NON-NLS-1$
+    private static final String PREF_PAGE_LAST_UPDATE = IDENTIFIER + "_page_last_update_"; //$NON-NLS-1$
 
     @Inject
     public GtasksPreferenceService(Preferences preferences) {
@@ -45,6 +50,20 @@ public class GtasksPreferenceService {
         preferences.setString(PREF_DEFAULT_LIST, defaultList);
     }
 
+    /** @return number of lists synchronized at the same time */
+    public int getSyncConcurrency() {
+        return Math.max(1, preferences.getInt(PREF_SYNC_CONCURRENCY, 4));
+    }
+
+    /** @return number of background syncs in a row that found no changed lists */
+    public int getQuietSyncs() {
+        return preferences.getInt(PREF_QUIET_SYNCS, 0);
+    }
+
+    public void setQuietSyncs(int quietSyncs) {
+        preferences.setInt(PREF_QUIET_SYNCS, quietSyncs);
+    }
+
     public String getUserName() {
         return preferences.getStringValue(PREF_USER_NAME);
     }
@@ -127,4 +146,33 @@ public class GtasksPreferenceService {
         preferences.clear(getIdentifier() + PREF_LAST_ERROR);
         preferences.setBoolean(getIdentifier() + PREF_ONGOING, true);
     }
+
+    /**
+     * @return token for the next page of an interrupted download of this
+     * list, or null if there is none for the given updatedMin
+     */
+    public String getPageToken(String listId, long updatedMin) {
+        if (preferences.getLong(PREF_PAGE_UPDATED_MIN + listId, -1) != updatedMin) {
+            return null;
+        }
+        return preferences.getStringValue(PREF_PAGE_TOKEN + listId);
+    }
+
+    /** @return latest update time seen by an interrupted download of this list */
+    public long getPageLastUpdate(String listId) {
+        return preferences.getLong(PREF_PAGE_LAST_UPDATE + listId, 0);
+    }
+
+    /** Record the progress of a list download after a page has been saved */
+    public void setPageCheckpoint(String listId, long updatedMin, String nextPageToken, long lastUpdate) {
+        preferences.setLong(PREF_PAGE_UPDATED_MIN + listId, updatedMin);
+        preferences.setString(PREF_PAGE_TOKEN + listId, nextPageToken);
+        preferences.setLong(PREF_PAGE_LAST_UPDATE + listId, lastUpdate);
+    }
+
+    public void clearPageCheckpoint(String listId) {
+        preferences.clear(PREF_PAGE_UPDATED_MIN + listId);
+        preferences.clear(PREF_PAGE_TOKEN + listId);
+        preferences.clear(PREF_PAGE_LAST_UPDATE + listId);
+    }
 }
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.gtasks;
+
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Property.StringProperty;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.data.Metadata;
+
+/**
+ * Typed copy of the {@link GtasksMetadata} rows, one row per metadata item.
+ * Metadata stays the record that is read and written; triggers mirror each
+ * gtasks row here with integer columns so that remote id lookups and list
+ * ordering can use indexes instead of casting the string value columns.
+ */
+public final class GtasksTable {
+
+    public static final Table TABLE = new Table("google_tasks", null);
+
+    /** Id of the mirrored metadata row */
+    public static final LongProperty METADATA = new LongProperty(TABLE, "metadata");
+
+    public static final LongProperty TASK = new LongProperty(TABLE, "task");
+
+    public static final StringProperty REMOTE_ID = new StringProperty(TABLE, "remote_id");
+
+    public static final StringProperty LIST_ID = new StringProperty(TABLE, "list_id");
+
+    public static final LongProperty PARENT = new LongProperty(TABLE, "parent");
+
+    public static final IntegerProperty INDENT = new IntegerProperty(TABLE, "indent");
+
+    /** Local ordering, see {@link GtasksMetadata#ORDER} */
+    public static final LongProperty ORDER = new LongProperty(TABLE, "list_order");
+
+    /** Ordering reported by google, see {@link GtasksMetadata#GTASKS_ORDER} */
+    public static final LongProperty REMOTE_ORDER = new LongProperty(TABLE, "remote_order");
+
+    private GtasksTable() {
+        // utility class
+    }
+
+    /**
+     * @return statements that create the table, its indexes and the triggers
+     * that keep it in sync with the metadata table
+     */
+    public static String[] createSql() {
+        String isGtasks = " = '" + GtasksMetadata.METADATA_KEY + "'";
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS " + TABLE.name + " (" +
+                        METADATA.name + " INTEGER PRIMARY KEY, " +
+                        TASK.name + " INTEGER, " +
+                        REMOTE_ID.name + " TEXT, " +
+                        LIST_ID.name + " TEXT, " +
+                        PARENT.name + " INTEGER, " +
+                        INDENT.name + " INTEGER, " +
+                        ORDER.name + " INTEGER, " +
+                        REMOTE_ORDER.name + " INTEGER)",
+                "CREATE INDEX IF NOT EXISTS gt_list_order ON " + TABLE.name +
+                        "(" + LIST_ID.name + ", " + ORDER.name + ")",
+                "CREATE INDEX IF NOT EXISTS gt_remote_id ON " + TABLE.name +
+                        "(" + REMOTE_ID.name + ")",
+                "CREATE INDEX IF NOT EXISTS gt_list_parent ON " + TABLE.name +
+                        "(" + LIST_ID.name + ", " + PARENT.name + ", " + REMOTE_ORDER.name + ")",
+                "CREATE TRIGGER IF NOT EXISTS gt_insert AFTER INSERT ON " + Metadata.TABLE.name +
+                        " WHEN new." + Metadata.KEY.name + isGtasks +
+                        " BEGIN " + copy("new") + "; END",
+                "CREATE TRIGGER IF NOT EXISTS gt_update AFTER UPDATE ON " + Metadata.TABLE.name +
+                        " WHEN old." + Metadata.KEY.name + isGtasks + " OR new." + Metadata.KEY.name + isGtasks +
+                        " BEGIN " + remove("old") + "; " +
+                        copy("new") + " WHERE new." + Metadata.KEY.name + isGtasks + "; END",
+                "CREATE TRIGGER IF NOT EXISTS gt_delete AFTER DELETE ON " + Metadata.TABLE.name +
+                        " WHEN old." + Metadata.KEY.name + isGtasks +
+                        " BEGIN " + remove("old") + "; END"
+        };
+    }
+
+    /**
+     * @return statement that copies all existing gtasks metadata
+     */
+    public static String populateSql() {
+        return "INSERT OR REPLACE INTO " + TABLE.name + " " + select(Metadata.TABLE.name) +
+                " FROM " + Metadata.TABLE.name +
+                " WHERE " + Metadata.KEY.name + " = '" + GtasksMetadata.METADATA_KEY + "'";
+    }
+
+    private static String copy(String row) {
+        return "INSERT OR REPLACE INTO " + TABLE.name + " " + select(row);
+    }
+
+    private static String remove(String row) {
+        return "DELETE FROM " + TABLE.name + " WHERE " + METADATA.name + " = " + row + "." + Metadata.ID.name;
+    }
+
+    /** Selects the mirrored columns from a metadata row, in table order */
+    private static String select(String row) {
+        return "SELECT " + row + "." + Metadata.ID.name +
+                ", " + row + "." + Metadata.TASK.name +
+                ", " + row + "." + GtasksMetadata.ID.name +
+                ", " + row + "." + GtasksMetadata.LIST_ID.name +
+                ", " + integer(row, GtasksMetadata.PARENT_TASK.name) +
+                ", " + integer(row, GtasksMetadata.INDENT.name) +
+                ", " + integer(row, GtasksMetadata.ORDER.name) +
+                ", " + integer(row, GtasksMetadata.GTASKS_ORDER.name);
+    }
+
+    private static String integer(String row, String column) {
+        return "CAST(" + row + "." + column + " AS INTEGER)";
+    }
+}
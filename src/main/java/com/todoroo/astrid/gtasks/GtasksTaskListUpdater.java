@@ -10,8 +10,7 @@ import android.text.TextUtils;
 import com.todoroo.andlib.data.Callback;
 import com.todoroo.andlib.data.Property.IntegerProperty;
 import com.todoroo.andlib.data.Property.LongProperty;
-import com.todoroo.andlib.sql.Criterion;
-import com.todoroo.andlib.sql.Functions;
+import com.todoroo.andlib.sql.Join;
 import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.dao.MetadataDao;
@@ -22,8 +21,11 @@ import com.todoroo.astrid.gtasks.sync.GtasksSyncService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -111,7 +113,7 @@ public class GtasksTaskListUpdater extends OrderedMetadataListUpdater<GtasksList
      * Update order, parent, and indentation fields for all tasks in the given list
      */
     public void correctMetadataForList(String listId) {
-        GtasksList list = gtasksListService.getList(listId);
+        final GtasksList list = gtasksListService.getList(listId);
         if(list == null) {
             return;
         }
@@ -121,53 +123,89 @@ public class GtasksTaskListUpdater extends OrderedMetadataListUpdater<GtasksList
         final AtomicLong order = new AtomicLong(0);
         final AtomicInteger previousIndent = new AtomicInteger(-1);
 
-        gtasksMetadataService.iterateThroughList(list, new OrderedListIterator() {
+        metadataDao.runInTransaction(new Runnable() {
             @Override
-            public void processTask(long taskId, Metadata metadata) {
-                metadata.setValue(GtasksMetadata.ORDER, order.getAndAdd(1));
-                int indent = metadata.getValue(GtasksMetadata.INDENT);
-                if(indent > previousIndent.get() + 1) {
-                    indent = previousIndent.get() + 1;
-                }
-                metadata.setValue(GtasksMetadata.INDENT, indent);
+            public void run() {
+                gtasksMetadataService.iterateThroughList(list, new OrderedListIterator() {
+                    @Override
+                    public void processTask(long taskId, Metadata metadata) {
+                        metadata.setValue(GtasksMetadata.ORDER, order.getAndAdd(1));
+                        int indent = metadata.getValue(GtasksMetadata.INDENT);
+                        if(indent > previousIndent.get() + 1) {
+                            indent = previousIndent.get() + 1;
+                        }
+                        metadata.setValue(GtasksMetadata.INDENT, indent);
 
-                Long parent = parents.get(taskId);
-                if(parent == null || parent < 0) {
-                    parent = Task.NO_ID;
-                }
-                metadata.setValue(GtasksMetadata.PARENT_TASK, parent);
+                        Long parent = parents.get(taskId);
+                        if(parent == null || parent < 0) {
+                            parent = Task.NO_ID;
+                        }
+                        metadata.setValue(GtasksMetadata.PARENT_TASK, parent);
 
-                metadataDao.persist(metadata);
-                previousIndent.set(indent);
+                        metadataDao.persist(metadata);
+                        previousIndent.set(indent);
+                    }
+                });
             }
         });
     }
 
-    public void correctOrderAndIndentForList(String listId) {
-        orderAndIndentHelper(listId, new AtomicLong(0L), Task.NO_ID, 0,
-                new HashSet<Long>());
+    /**
+     * Recompute local order and indent from the remote parent and position.
+     * The list is read with one query and the tree is walked in memory. Only
+     * rows whose order or indent changed are written.
+     *
+     * @return number of metadata rows rewritten
+     */
+    public int correctOrderAndIndentForList(final String listId) {
+        final Map<Long, List<Metadata>> children = new HashMap<>();
+        Query query = Query.select(Metadata.PROPERTIES)
+                .join(Join.inner(GtasksTable.TABLE, Metadata.ID.eq(GtasksTable.METADATA)))
+                .where(GtasksTable.LIST_ID.eq(listId))
+                .orderBy(Order.asc(GtasksTable.REMOTE_ORDER));
+        metadataDao.query(query, new Callback<Metadata>() {
+            @Override
+            public void apply(Metadata metadata) {
+                Long parent = metadata.getValue(GtasksMetadata.PARENT_TASK);
+                List<Metadata> siblings = children.get(parent);
+                if (siblings == null) {
+                    siblings = new ArrayList<>();
+                    children.put(parent, siblings);
+                }
+                siblings.add(metadata);
+            }
+        });
+        final AtomicInteger written = new AtomicInteger();
+        metadataDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                orderAndIndentHelper(children, new AtomicLong(0L), Task.NO_ID, 0,
+                        new HashSet<Long>(), written);
+            }
+        });
+        return written.get();
     }
 
-    private void orderAndIndentHelper(final String listId, final AtomicLong order, final long parent, final int indentLevel, final Set<Long> alreadyChecked) {
-        Query query = Query.select(Metadata.PROPERTIES).where(Criterion.and(
-                Metadata.KEY.eq(GtasksMetadata.METADATA_KEY),
-                GtasksMetadata.LIST_ID.eq(listId),
-                GtasksMetadata.PARENT_TASK.eq(parent)))
-                .orderBy(Order.asc(Functions.cast(GtasksMetadata.GTASKS_ORDER, "INTEGER")));
-        metadataDao.query(query, new Callback<Metadata>() {
-                    @Override
-                    public void apply(Metadata curr) {
-                        if (!alreadyChecked.contains(curr.getTask())) {
-                            curr.setValue(GtasksMetadata.INDENT, indentLevel);
-                            curr.setValue(GtasksMetadata.ORDER, order.getAndIncrement());
-                            metadataDao.saveExisting(curr);
-                            alreadyChecked.add(curr.getTask());
-
-                            orderAndIndentHelper(listId, order, curr.getTask(), indentLevel + 1, alreadyChecked);
-                        }
-                    }
+    private void orderAndIndentHelper(Map<Long, List<Metadata>> children, AtomicLong order, long parent, int indentLevel,
+                                      Set<Long> alreadyChecked, AtomicInteger written) {
+        List<Metadata> siblings = children.get(parent);
+        if (siblings == null) {
+            return;
+        }
+        for (Metadata curr : siblings) {
+            if (alreadyChecked.add(curr.getTask())) {
+                long newOrder = order.getAndIncrement();
+                if (curr.getValue(GtasksMetadata.INDENT) != indentLevel ||
+                        curr.getValue(GtasksMetadata.ORDER) != newOrder) {
+                    curr.setValue(GtasksMetadata.INDENT, indentLevel);
+                    curr.setValue(GtasksMetadata.ORDER, newOrder);
+                    metadataDao.saveExisting(curr);
+                    written.incrementAndGet();
                 }
-        );
+
+                orderAndIndentHelper(children, order, curr.getTask(), indentLevel + 1, alreadyChecked, written);
+            }
+        }
     }
 
     void updateParentSiblingMapsFor(GtasksList list) {
@@ -68,53 +68,58 @@ abstract public class OrderedMetadataListUpdater<LIST> {
         final AtomicLong previousTask = new AtomicLong(Task.NO_ID);
         final AtomicLong globalOrder = new AtomicLong(-1);
 
-        iterateThroughList(list, new OrderedListIterator() {
+        metadataDao.runInTransaction(new Runnable() {
             @Override
-            public void processTask(long taskId, Metadata metadata) {
-                if(!metadata.isSaved()) {
-                    metadata = createEmptyMetadata(list, taskId);
-                }
-                int indent = metadata.containsNonNullValue(indentProperty()) ?
-                        metadata.getValue(indentProperty()) : 0;
-
-                long order = globalOrder.incrementAndGet();
-                metadata.setValue(orderProperty(), order);
-
-                if(targetTaskId == taskId) {
-                    // if indenting is warranted, indent me and my children
-                    if(indent + delta <= previousIndent.get() + 1 && indent + delta >= 0) {
-                        targetTaskIndent.set(indent);
-                        metadata.setValue(indentProperty(), indent + delta);
-
-                        if(parentProperty() != null) {
-                            long newParent = computeNewParent(list,
-                                    taskId, indent + delta - 1);
-                            if (newParent == taskId) {
-                                metadata.setValue(parentProperty(), Task.NO_ID);
+            public void run() {
+                iterateThroughList(list, new OrderedListIterator() {
+                    @Override
+                    public void processTask(long taskId, Metadata metadata) {
+                        if(!metadata.isSaved()) {
+                            metadata = createEmptyMetadata(list, taskId);
+                        }
+                        int indent = metadata.containsNonNullValue(indentProperty()) ?
+                                metadata.getValue(indentProperty()) : 0;
+
+                        long order = globalOrder.incrementAndGet();
+                        metadata.setValue(orderProperty(), order);
+
+                        if(targetTaskId == taskId) {
+                            // if indenting is warranted, indent me and my children
+                            if(indent + delta <= previousIndent.get() + 1 && indent + delta >= 0) {
+                                targetTaskIndent.set(indent);
+                                metadata.setValue(indentProperty(), indent + delta);
+
+                                if(parentProperty() != null) {
+                                    long newParent = computeNewParent(list,
+                                            taskId, indent + delta - 1);
+                                    if (newParent == taskId) {
+                                        metadata.setValue(parentProperty(), Task.NO_ID);
+                                    } else {
+                                        metadata.setValue(parentProperty(), newParent);
+                                    }
+                                }
+                                saveAndUpdateModifiedDate(metadata);
+                            }
+                        } else if(targetTaskIndent.get() > -1) {
+                            // found first task that is not beneath target
+                            if(indent <= targetTaskIndent.get()) {
+                                targetTaskIndent.set(-1);
                             } else {
-                                metadata.setValue(parentProperty(), newParent);
+                                metadata.setValue(indentProperty(), indent + delta);
+                                saveAndUpdateModifiedDate(metadata);
                             }
+                        } else {
+                            previousIndent.set(indent);
+                            previousTask.set(taskId);
+                        }
+
+                        if(!metadata.isSaved()) {
+                            saveAndUpdateModifiedDate(metadata);
                         }
-                        saveAndUpdateModifiedDate(metadata);
-                    }
-                } else if(targetTaskIndent.get() > -1) {
-                    // found first task that is not beneath target
-                    if(indent <= targetTaskIndent.get()) {
-                        targetTaskIndent.set(-1);
-                    } else {
-                        metadata.setValue(indentProperty(), indent + delta);
-                        saveAndUpdateModifiedDate(metadata);
                     }
-                } else {
-                    previousIndent.set(indent);
-                    previousTask.set(taskId);
-                }
 
-                if(!metadata.isSaved()) {
-                    saveAndUpdateModifiedDate(metadata);
-                }
+                });
             }
-
         });
         onMovedOrIndented(getTaskMetadata(targetTaskId));
     }
@@ -186,7 +191,7 @@ abstract public class OrderedMetadataListUpdater<LIST> {
             }
         }
 
-        traverseTreeAndWriteValues(list, root, new AtomicLong(0), -1);
+        writeTree(list, root);
         onMovedOrIndented(getTaskMetadata(targetTaskId));
     }
 
@@ -211,6 +216,18 @@ abstract public class OrderedMetadataListUpdater<LIST> {
         }
     }
 
+    /**
+     * Rewrite order and indent for the whole tree in a single transaction
+     */
+    private void writeTree(final LIST list, final Node root) {
+        metadataDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                traverseTreeAndWriteValues(list, root, new AtomicLong(0), -1);
+            }
+        });
+    }
+
     protected void traverseTreeAndWriteValues(LIST list, Node node, AtomicLong order, int indent) {
         if(node.taskId != Task.NO_ID) {
             Metadata metadata = getTaskMetadata(node.taskId);
@@ -343,6 +360,6 @@ abstract public class OrderedMetadataListUpdater<LIST> {
             }
         }
 
-        traverseTreeAndWriteValues(list, root, new AtomicLong(0), -1);
+        writeTree(list, root);
     }
 }
@@ -0,0 +1,174 @@
+package com.todoroo.astrid.gtasks.api;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.tasks.TasksRequest;
+import com.google.api.services.tasks.model.Task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects task patches and sends them as Google API batch requests, so that
+ * pushing a bulk edit costs one round trip per {@link #MAX_SIZE} tasks
+ * instead of one per task. Not thread safe.
+ */
+public class GtasksBatch {
+
+    private static final Logger log = LoggerFactory.getLogger(GtasksBatch.class);
+
+    /** Requests per http call, keeps a failed call cheap to resend */
+    private static final int MAX_SIZE = 50;
+
+    public interface Callback {
+        void onSuccess(Task result) throws IOException;
+        void onFailure(int statusCode, String message) throws IOException;
+    }
+
+    private static class Entry {
+        private final TasksRequest<Task> request;
+        private final Callback callback;
+        private boolean answered;
+
+        private Entry(TasksRequest<Task> request, Callback callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Thrown by an entry's callback, carried out of the batch so that it
+     * isn't mistaken for a failed http call
+     */
+    private static class CallbackException extends IOException {
+        private CallbackException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private final GtasksInvoker invoker;
+    private final List<Entry> queued = new ArrayList<>();
+
+    GtasksBatch(GtasksInvoker invoker) {
+        this.invoker = invoker;
+    }
+
+    /**
+     * Queue a patch. Only fields set on the task are changed remotely, use
+     * {@link com.google.api.client.util.Data#nullOf} to clear a field.
+     */
+    public void patchGtask(String listId, Task task, Callback callback) throws IOException {
+        queued.add(new Entry(invoker.getService()
+                .tasks()
+                .patch(listId, task.getId(), task), callback));
+    }
+
+    public boolean isEmpty() {
+        return queued.isEmpty();
+    }
+
+    /**
+     * Send everything queued so far. Requests rejected as unauthorized are
+     * sent once more after revalidating the token. If the http call fails,
+     * the requests that weren't answered yet are sent once more.
+     */
+    public void execute() throws IOException {
+        if (queued.isEmpty()) {
+            return;
+        }
+        invoker.updateToken();
+        List<Entry> pending = new ArrayList<>(queued);
+        queued.clear();
+        for (int i = 0 ; i < pending.size() ; i += MAX_SIZE) {
+            List<Entry> unauthorized = send(pending.subList(i, Math.min(i + MAX_SIZE, pending.size())), false);
+            if (!unauthorized.isEmpty()) {
+                invoker.revalidateToken();
+                send(unauthorized, true);
+            }
+        }
+    }
+
+    private List<Entry> send(List<Entry> entries, boolean lastAttempt) throws IOException {
+        List<Entry> unauthorized = new ArrayList<>();
+        for (Entry entry : entries) {
+            entry.answered = false;
+        }
+        log.debug("sending {} requests", entries.size());
+        try {
+            build(entries, unauthorized, lastAttempt).execute();
+        } catch (CallbackException e) {
+            throw e.getCause();
+        } catch (IOException e) {
+            invoker.handleException(e);
+            List<Entry> unanswered = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (!entry.answered) {
+                    unanswered.add(entry);
+                }
+            }
+            if (!unanswered.isEmpty()) {
+                log.debug("resending {} requests", unanswered.size());
+                execute(build(unanswered, unauthorized, lastAttempt));
+            }
+        }
+        return unauthorized;
+    }
+
+    /**
+     * Like {@link BatchRequest#execute}, but a callback's exception is
+     * thrown as is
+     */
+    private void execute(BatchRequest batch) throws IOException {
+        try {
+            batch.execute();
+        } catch (CallbackException e) {
+            throw e.getCause();
+        }
+    }
+
+    private BatchRequest build(List<Entry> entries, final List<Entry> unauthorized, final boolean lastAttempt) throws IOException {
+        BatchRequest batch = invoker.getService().batch();
+        for (final Entry entry : entries) {
+            entry.request.setKey(invoker.getKey());
+            entry.request.queue(batch, new JsonBatchCallback<Task>() {
+                @Override
+                public void onSuccess(Task task, HttpHeaders responseHeaders) throws IOException {
+                    entry.answered = true;
+                    try {
+                        entry.callback.onSuccess(task);
+                    } catch (IOException e) {
+                        throw new CallbackException(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) throws IOException {
+                    entry.answered = true;
+                    int statusCode = e.getCode();
+                    if (!lastAttempt && (statusCode == 401 || statusCode == 403)) {
+                        unauthorized.add(entry);
+                    } else {
+                        log.error("{}: {}", statusCode, e.getMessage());
+                        try {
+                            entry.callback.onFailure(statusCode, e.getMessage());
+                        } catch (IOException c) {
+                            throw new CallbackException(c);
+                        }
+                    }
+                }
+            });
+        }
+        return batch;
+    }
+}
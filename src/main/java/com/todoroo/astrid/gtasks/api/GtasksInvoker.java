@@ -4,47 +4,96 @@ import android.content.Context;
 
 import com.google.api.client.extensions.android.http.AndroidHttp;
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpExecuteInterceptor;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.GenericJson;
+import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.tasks.Tasks;
 import com.google.api.services.tasks.TasksRequest;
 import com.google.api.services.tasks.model.Task;
 import com.google.api.services.tasks.model.TaskList;
 import com.google.api.services.tasks.model.TaskLists;
+import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.R;
+import org.tasks.injection.ForApplication;
+import org.tasks.sync.SyncMetrics;
+import org.tasks.sync.SyncThrottle;
 
 import java.io.IOException;
 
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
 /**
  * Wrapper around the official Google Tasks API to simplify common operations. In the case
  * of an exception, each request is tried twice in case of a timeout.
  *
+ * One instance is shared through the object graph. It follows the token stored in
+ * {@link GtasksPreferenceService}, and all instances share one HTTP transport so
+ * that connections are kept alive between requests.
+ *
  * @author Sam Bosley
  */
+@Singleton
 public class GtasksInvoker {
 
     private static final Logger log = LoggerFactory.getLogger(GtasksInvoker.class);
 
+    private static final HttpTransport transport = AndroidHttp.newCompatibleTransport();
+    private static final JsonFactory jsonFactory = new GsonFactory();
+
     private final Context context;
     private final GtasksTokenValidator gtasksTokenValidator;
+    private final GtasksPreferenceService gtasksPreferenceService;
+    private final SyncThrottle syncThrottle;
+    private final SyncMetrics syncMetrics;
     private Tasks service;
     private GoogleCredential credential = new GoogleCredential();
     private String token;
 
     private final String key;
 
+    /** Largest page size accepted by tasks().list() */
+    private static final long MAX_RESULTS = 100L;
+
     public static final String AUTH_TOKEN_TYPE = "Manage your tasks"; //"oauth2:https://www.googleapis.com/auth/tasks";
 
+    @Inject
+    public GtasksInvoker(@ForApplication Context context, GtasksTokenValidator gtasksTokenValidator,
+                         GtasksPreferenceService gtasksPreferenceService, SyncThrottle syncThrottle,
+                         SyncMetrics syncMetrics) {
+        this(context, gtasksTokenValidator, gtasksPreferenceService, syncThrottle, syncMetrics,
+                gtasksPreferenceService.getToken());
+    }
+
+    /**
+     * Invoker bound to the given token, for checking a token before it is saved
+     */
     public GtasksInvoker(Context context, GtasksTokenValidator gtasksTokenValidator, String authToken) {
+        this(context, gtasksTokenValidator, null, null, null, authToken);
+    }
+
+    private GtasksInvoker(Context context, GtasksTokenValidator gtasksTokenValidator,
+                          GtasksPreferenceService gtasksPreferenceService, SyncThrottle syncThrottle,
+                          final SyncMetrics syncMetrics, String authToken) {
         this.context = context;
         this.gtasksTokenValidator = gtasksTokenValidator;
+        this.gtasksPreferenceService = gtasksPreferenceService;
+        this.syncThrottle = syncThrottle;
+        this.syncMetrics = syncMetrics;
         this.token = authToken;
 
         key = context.getString(R.string.gapi_key);
@@ -54,36 +103,107 @@ public class GtasksInvoker {
             public void initialize(HttpRequest request) throws IOException {
                 credential.initialize(request);
                 request.setReadTimeout(0); // infinite
+                if (syncMetrics != null) {
+                    measure(request, syncMetrics);
+                }
             }
         };
-        service = new Tasks.Builder(AndroidHttp.newCompatibleTransport(), new GsonFactory(), httpRequestInitializer)
+        service = new Tasks.Builder(transport, jsonFactory, httpRequestInitializer)
                 .setApplicationName("Tasks")
                 .build();
     }
 
+    /**
+     * Record latency and payload sizes of every http call, including batches
+     */
+    private static void measure(HttpRequest request, final SyncMetrics syncMetrics) {
+        final HttpExecuteInterceptor authInterceptor = request.getInterceptor();
+        final long[] sent = new long[2];
+        request.setInterceptor(new HttpExecuteInterceptor() {
+            @Override
+            public void intercept(HttpRequest request) throws IOException {
+                if (authInterceptor != null) {
+                    authInterceptor.intercept(request);
+                }
+                HttpContent content = request.getContent();
+                sent[0] = currentTimeMillis();
+                sent[1] = content == null ? 0 : content.getLength();
+            }
+        });
+        request.setResponseInterceptor(new HttpResponseInterceptor() {
+            @Override
+            public void interceptResponse(HttpResponse response) throws IOException {
+                Long received = response.getHeaders().getContentLength();
+                syncMetrics.request(currentTimeMillis() - sent[0], sent[1], received == null ? -1 : received);
+            }
+        });
+    }
+
+    /**
+     * Pick up a token saved since the last request, e.g. after signing in again
+     */
+    synchronized void updateToken() {
+        if (gtasksPreferenceService == null) {
+            return;
+        }
+        String saved = gtasksPreferenceService.getToken();
+        if (saved != null && !saved.equals(token)) {
+            token = saved;
+            credential.setAccessToken(saved);
+        }
+    }
+
     //If we get a 401 or 403, try revalidating the auth token before bailing
-    private synchronized void handleException(IOException e) throws IOException {
+    synchronized void handleException(IOException e) throws IOException {
+        if (syncMetrics != null) {
+            syncMetrics.requestFailed();
+        }
         if (e instanceof HttpResponseException) {
             HttpResponseException h = (HttpResponseException) e;
             int statusCode = h.getStatusCode();
             if (statusCode == 401 || statusCode == 403) {
-                token = gtasksTokenValidator.validateAuthToken(context, token);
-                if (token != null) {
-                    credential.setAccessToken(token);
-                }
+                revalidateToken();
             } else if (statusCode == 400 || statusCode == 500) {
                 throw h;
             } else if (statusCode == 404) {
                 throw new HttpNotFoundException(h);
             } else {
                 log.error(statusCode + ": " + h.getStatusMessage(), e);
+                // 503 errors are generally either 1) quota limit reached or 2) problems on Google's end
+                if ((statusCode == 503 || statusCode == 429) && syncThrottle != null) {
+                    syncThrottle.backOff();
+                }
             }
-            // 503 errors are generally either 1) quota limit reached or 2) problems on Google's end
         } else {
             log.error(e.getMessage(), e);
         }
     }
 
+    synchronized void revalidateToken() throws IOException {
+        token = gtasksTokenValidator.validateAuthToken(context, token);
+        if (token != null) {
+            credential.setAccessToken(token);
+            if (gtasksPreferenceService != null) {
+                gtasksPreferenceService.setToken(token);
+            }
+        }
+    }
+
+    Tasks getService() {
+        return service;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * @return a batch for sending many updates in one request
+     */
+    public GtasksBatch newBatch() {
+        return new GtasksBatch(this);
+    }
+
     /**
      * A simple service query that will throw an exception if anything goes wrong.
      * Useful for checking if token needs revalidating or if there are network problems--
@@ -110,10 +230,17 @@ public class GtasksInvoker {
                 .get(id));
     }
 
-    public com.google.api.services.tasks.model.Tasks getAllGtasksFromListId(String listId, boolean includeDeleted, boolean includeHidden, long lastSyncDate) throws IOException {
+    /**
+     * Fetch one page of a list's tasks
+     *
+     * @param pageToken next page token from the previous page, or null for the first page
+     */
+    public com.google.api.services.tasks.model.Tasks getAllGtasksFromListId(String listId, boolean includeDeleted, boolean includeHidden, long lastSyncDate, String pageToken) throws IOException {
         return execute(service
                 .tasks()
                 .list(listId)
+                .setMaxResults(MAX_RESULTS)
+                .setPageToken(pageToken)
                 .setShowDeleted(includeDeleted)
                 .setShowHidden(includeHidden)
                 .setUpdatedMin(GtasksApiUtilities.unixTimeToGtasksCompletionTime(lastSyncDate).toStringRfc3339()));
@@ -148,7 +275,8 @@ public class GtasksInvoker {
     }
 
     private <T> T execute(TasksRequest<T> request) throws IOException {
-        String caller = getCaller();
+        updateToken();
+        String caller = request.getClass().getSimpleName();
         log.debug("{} request: {}", caller, request);
         T response;
         try {
@@ -157,10 +285,17 @@ public class GtasksInvoker {
                     .execute();
         } catch (IOException e) {
             handleException(e);
+            if (syncThrottle != null && syncThrottle.isBackingOff()) {
+                // don't add to the load while the server is unavailable or out of quota
+                throw e;
+            }
             response = request
                     .setKey(key)
                     .execute();
         }
+        if (syncThrottle != null) {
+            syncThrottle.resetBackoff();
+        }
         log.debug("{} response: {}", caller, prettyPrint(response));
         return response;
     }
@@ -171,15 +306,4 @@ public class GtasksInvoker {
         }
         return object;
     }
-
-    private String getCaller() {
-        if (log.isDebugEnabled()) {
-            try {
-                return Thread.currentThread().getStackTrace()[4].getMethodName();
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-            }
-        }
-        return "";
-    }
 }
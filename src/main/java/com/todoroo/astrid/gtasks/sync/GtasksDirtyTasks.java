@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.gtasks.sync;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.data.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Tasks created or modified since they were last checked by a full sync.
+ * Triggers on the task table add rows, so {@link GtasksSyncV2Provider}
+ * only has to look at these tasks instead of comparing every task with its
+ * gtasks metadata.
+ */
+@Singleton
+public class GtasksDirtyTasks {
+
+    public static final Table TABLE = new Table("gtasks_dirty", null);
+
+    public static final LongProperty TASK = new LongProperty(TABLE, "task");
+
+    /**
+     * @return statements that create the table and its triggers
+     */
+    public static String[] createSql() {
+        String mark = "INSERT OR IGNORE INTO " + TABLE.name + " (" + TASK.name + ") VALUES (new." + Task.ID.name + ")";
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS " + TABLE.name + " (" +
+                        TASK.name + " INTEGER PRIMARY KEY)",
+                "CREATE TRIGGER IF NOT EXISTS gtasks_dirty_insert AFTER INSERT ON " + Task.TABLE.name +
+                        " BEGIN " + mark + "; END",
+                "CREATE TRIGGER IF NOT EXISTS gtasks_dirty_update AFTER UPDATE OF " +
+                        Task.MODIFICATION_DATE.name + " ON " + Task.TABLE.name +
+                        " BEGIN " + mark + "; END",
+                "CREATE TRIGGER IF NOT EXISTS gtasks_dirty_delete AFTER DELETE ON " + Task.TABLE.name +
+                        " BEGIN DELETE FROM " + TABLE.name + " WHERE " + TASK.name + " = old." + Task.ID.name + "; END"
+        };
+    }
+
+    /**
+     * @return statement that marks every task dirty
+     */
+    public static String populateSql() {
+        return "INSERT OR IGNORE INTO " + TABLE.name + " (" + TASK.name + ") " +
+                "SELECT " + Task.ID.name + " FROM " + Task.TABLE.name;
+    }
+
+    private final Database database;
+
+    @Inject
+    public GtasksDirtyTasks(Database database) {
+        this.database = database;
+    }
+
+    public List<Long> getTaskIds() {
+        List<Long> result = new ArrayList<>();
+        Cursor cursor = database.rawQuery("SELECT " + TASK.name + " FROM " + TABLE.name);
+        try {
+            while (cursor.moveToNext()) {
+                result.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return result;
+    }
+
+    public void remove(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        database.execSQL("DELETE FROM " + TABLE.name + " WHERE " + TASK.name +
+                " IN (" + TextUtils.join(",", taskIds) + ")", null);
+    }
+
+    /**
+     * Mark every task dirty, e.g. after signing out so that the next account
+     * receives all of them
+     */
+    public void markAll() {
+        database.execSQL(populateSql(), null);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.gtasks.sync;
+
+import android.database.Cursor;
+
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.Database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Local changes waiting to be pushed to Google Tasks, at most one row per
+ * task and operation. Queuing an operation that is already pending merges
+ * into the existing row, so a task edited many times is pushed once with
+ * the union of its changed columns. Rows are stored in the database so
+ * pending pushes survive the process being killed.
+ */
+@Singleton
+public class GtasksOutbox {
+
+    /** Push task fields. Runs before moves so new tasks exist remotely first */
+    public static final int TYPE_PUSH = 0;
+
+    /** Push the task's position in its list */
+    public static final int TYPE_MOVE = 1;
+
+    public static final Table TABLE = new Table("gtasks_outbox", null);
+
+    public static final LongProperty TASK = new LongProperty(TABLE, "task");
+
+    public static final IntegerProperty TYPE = new IntegerProperty(TABLE, "type");
+
+    /** Bit mask of changed columns, defined by the caller */
+    public static final IntegerProperty COLUMNS = new IntegerProperty(TABLE, "columns");
+
+    /** Time the operation was first queued */
+    public static final LongProperty CREATED = new LongProperty(TABLE, "created");
+
+    /** Incremented each time the row is merged into */
+    public static final LongProperty VERSION = new LongProperty(TABLE, "version");
+
+    public static class Entry {
+        public final long task;
+        public final int type;
+        public final int columns;
+        private final long version;
+
+        private Entry(long task, int type, int columns, long version) {
+            this.task = task;
+            this.type = type;
+            this.columns = columns;
+            this.version = version;
+        }
+    }
+
+    /**
+     * @return statement that creates the table
+     */
+    public static String[] createSql() {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS " + TABLE.name + " (" +
+                        TASK.name + " INTEGER, " +
+                        TYPE.name + " INTEGER, " +
+                        COLUMNS.name + " INTEGER, " +
+                        CREATED.name + " INTEGER, " +
+                        VERSION.name + " INTEGER, " +
+                        "PRIMARY KEY (" + TASK.name + ", " + TYPE.name + "))"
+        };
+    }
+
+    private static final String ENQUEUE = "INSERT OR REPLACE INTO " + TABLE.name +
+            " (" + TASK.name + ", " + TYPE.name + ", " + COLUMNS.name + ", " + CREATED.name + ", " + VERSION.name + ")" +
+            " SELECT ?, ?, ? | IFNULL(o." + COLUMNS.name + ", 0), IFNULL(o." + CREATED.name + ", ?), IFNULL(o." + VERSION.name + ", 0) + 1" +
+            " FROM (SELECT 1) LEFT JOIN " + TABLE.name + " o ON o." + TASK.name + " = ? AND o." + TYPE.name + " = ?";
+
+    private final Database database;
+
+    @Inject
+    public GtasksOutbox(Database database) {
+        this.database = database;
+    }
+
+    public void enqueue(long taskId, int type, int columns) {
+        database.execSQL(ENQUEUE, new Object[] { taskId, type, columns, DateUtilities.now(), taskId, type });
+    }
+
+    /**
+     * @return pending operations, pushes first, each type oldest first
+     */
+    public List<Entry> pending() {
+        List<Entry> result = new ArrayList<>();
+        Cursor cursor = database.rawQuery("SELECT " + TASK.name + ", " + TYPE.name + ", " + COLUMNS.name + ", " + VERSION.name +
+                " FROM " + TABLE.name + " ORDER BY " + TYPE.name + ", " + CREATED.name);
+        try {
+            while (cursor.moveToNext()) {
+                result.add(new Entry(cursor.getLong(0), cursor.getInt(1), cursor.getInt(2), cursor.getLong(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return result;
+    }
+
+    /**
+     * Remove a processed entry, unless it was merged into after it was read
+     */
+    public void remove(Entry entry) {
+        database.execSQL("DELETE FROM " + TABLE.name + " WHERE " + TASK.name + " = ? AND " +
+                TYPE.name + " = ? AND " + VERSION.name + " = ?", new Object[] { entry.task, entry.type, entry.version });
+    }
+
+    public void clear() {
+        database.execSQL("DELETE FROM " + TABLE.name, null);
+    }
+}
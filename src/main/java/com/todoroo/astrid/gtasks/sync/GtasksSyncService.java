@@ -6,9 +6,11 @@
 package com.todoroo.astrid.gtasks.sync;
 
 import android.content.ContentValues;
-import android.content.Context;
 import android.text.TextUtils;
 
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.util.Data;
+import com.google.api.client.util.DateTime;
 import com.todoroo.andlib.data.DatabaseDao.ModelUpdateListener;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.utility.AndroidUtilities;
@@ -22,23 +24,26 @@ import com.todoroo.astrid.gtasks.GtasksMetadata;
 import com.todoroo.astrid.gtasks.GtasksMetadataService;
 import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.api.GtasksApiUtilities;
+import com.todoroo.astrid.gtasks.api.GtasksBatch;
 import com.todoroo.astrid.gtasks.api.GtasksInvoker;
 import com.todoroo.astrid.gtasks.api.HttpNotFoundException;
 import com.todoroo.astrid.gtasks.api.MoveRequest;
-import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
 import com.todoroo.astrid.service.TaskService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.tasks.injection.ForApplication;
+import org.tasks.sync.SyncMetrics;
 
 import java.io.IOException;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
 @Singleton
 public class GtasksSyncService {
 
@@ -46,77 +51,36 @@ public class GtasksSyncService {
 
     private static final String DEFAULT_LIST = "@default"; //$NON-NLS-1$
 
-    private Context context;
     private final MetadataDao metadataDao;
     private final GtasksMetadataService gtasksMetadataService;
     private final TaskDao taskDao;
     private final GtasksPreferenceService gtasksPreferenceService;
-    private final GtasksTokenValidator gtasksTokenValidator;
+    private final GtasksInvoker invoker;
     private final GtasksMetadata gtasksMetadataFactory;
-    private final LinkedBlockingQueue<SyncOnSaveOperation> operationQueue = new LinkedBlockingQueue<>();
+    private final GtasksOutbox outbox;
+    private final SyncMetrics syncMetrics;
+    private final Semaphore wakeup = new Semaphore(0);
+    private final List<Semaphore> waiting = new ArrayList<>();
 
     @Inject
-    public GtasksSyncService(@ForApplication Context context, MetadataDao metadataDao, GtasksMetadataService gtasksMetadataService,
+    public GtasksSyncService(MetadataDao metadataDao, GtasksMetadataService gtasksMetadataService,
                              TaskDao taskDao, GtasksPreferenceService gtasksPreferenceService,
-                             GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadataFactory) {
-        this.context = context;
+                             GtasksInvoker invoker, GtasksMetadata gtasksMetadataFactory,
+                             GtasksOutbox outbox, SyncMetrics syncMetrics) {
         this.metadataDao = metadataDao;
         this.gtasksMetadataService = gtasksMetadataService;
         this.taskDao = taskDao;
         this.gtasksPreferenceService = gtasksPreferenceService;
-        this.gtasksTokenValidator = gtasksTokenValidator;
+        this.invoker = invoker;
         this.gtasksMetadataFactory = gtasksMetadataFactory;
-    }
-
-    private abstract class SyncOnSaveOperation {
-        abstract public void op(GtasksInvoker invoker) throws IOException;
-    }
-
-    private class TaskPushOp extends SyncOnSaveOperation {
-        protected Task model;
-        protected long creationDate = DateUtilities.now();
-
-        public TaskPushOp(Task model) {
-            this.model = model;
-        }
-
-        @Override
-        public void op(GtasksInvoker invoker) throws IOException {
-            if(DateUtilities.now() - creationDate < 1000) {
-                AndroidUtilities.sleepDeep(1000 - (DateUtilities.now() - creationDate));
-            }
-            pushTaskOnSave(model, model.getMergedValues(), invoker);
-        }
-    }
-
-    private class MoveOp extends SyncOnSaveOperation {
-        protected Metadata metadata;
-
-        public MoveOp(Metadata metadata) {
-            this.metadata = metadata;
-        }
-
-        @Override
-        public void op(GtasksInvoker invoker) throws IOException {
-            pushMetadataOnSave(metadata, invoker);
-        }
-    }
-
-    private class NotifyOp extends SyncOnSaveOperation {
-        private final Semaphore sema;
-
-        public NotifyOp(Semaphore sema) {
-            this.sema = sema;
-        }
-
-        @Override
-        public void op(GtasksInvoker invoker) throws IOException {
-            sema.release();
-        }
+        this.outbox = outbox;
+        this.syncMetrics = syncMetrics;
     }
 
     public void initialize() {
-        new OperationPushThread(operationQueue).start();
+        new OperationPushThread().start();
+        // push anything left over from the last run
+        wakeup.release();
 
         taskDao.addListener(new ModelUpdateListener<Task>() {
             @Override
@@ -131,46 +95,116 @@ public class GtasksSyncService {
                 if(setValues == null || !checkForToken()) {
                     return;
                 }
-                if (!checkValuesForProperties(setValues, TASK_PROPERTIES)) { //None of the properties we sync were updated
+                int columns = changedColumns(setValues);
+                if (columns == 0) { //None of the properties we sync were updated
                     return;
                 }
 
-                Task toPush = taskDao.fetch(model.getId(), TASK_PROPERTIES);
-                operationQueue.offer(new TaskPushOp(toPush));
+                outbox.enqueue(model.getId(), GtasksOutbox.TYPE_PUSH, columns);
+                wakeup.release();
             }
         });
     }
 
     private class OperationPushThread extends Thread {
-        private final LinkedBlockingQueue<SyncOnSaveOperation> queue;
-
-        public OperationPushThread(LinkedBlockingQueue<SyncOnSaveOperation> queue) {
-            this.queue = queue;
-        }
-
         @Override
         public void run() {
             while (true) {
-                SyncOnSaveOperation op;
                 try {
-                    op = queue.take();
+                    wakeup.acquire();
                 } catch (InterruptedException e) {
                     log.error(e.getMessage(), e);
                     continue;
                 }
+                boolean waited;
+                synchronized (waiting) {
+                    waited = !waiting.isEmpty();
+                }
+                if (!waited) {
+                    // let the rest of an edit arrive so it goes out in the same batch
+                    AndroidUtilities.sleepDeep(1000L);
+                }
+                wakeup.drainPermits();
+                List<Semaphore> released;
+                synchronized (waiting) {
+                    released = new ArrayList<>(waiting);
+                    waiting.clear();
+                }
                 try {
-                    GtasksInvoker invoker = new GtasksInvoker(context, gtasksTokenValidator, gtasksPreferenceService.getToken());
-                    op.op(invoker);
-                } catch (IOException e) {
+                    drainOutbox();
+                } finally {
+                    for (Semaphore sema : released) {
+                        sema.release();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Push pending operations. Operations rejected by the server are dropped,
+     * anything left when the connection fails is retried on the next wakeup.
+     */
+    private void drainOutbox() {
+        if (!checkForToken()) {
+            return;
+        }
+        List<GtasksOutbox.Entry> pending = outbox.pending();
+        if (pending.isEmpty()) {
+            return;
+        }
+        syncMetrics.startRun(SyncMetrics.RUN_PUSH);
+        long started = currentTimeMillis();
+        GtasksBatch batch = invoker.newBatch();
+        List<GtasksOutbox.Entry> batched = new ArrayList<>();
+        try {
+            for (GtasksOutbox.Entry entry : pending) {
+                try {
+                    if (entry.type == GtasksOutbox.TYPE_MOVE) {
+                        flush(batch, batched);
+                        Metadata metadata = gtasksMetadataService.getTaskMetadata(entry.task);
+                        if (metadata != null) {
+                            pushMetadataOnSave(metadata, invoker);
+                        }
+                    } else {
+                        Task task = taskDao.fetch(entry.task, TASK_PROPERTIES);
+                        if (task != null) {
+                            pushTaskOnSave(task, changedValues(task, entry.columns), invoker, batch);
+                            batched.add(entry);
+                            continue;
+                        }
+                    }
+                } catch (HttpResponseException | HttpNotFoundException e) {
                     log.error(e.getMessage(), e);
                 }
+                outbox.remove(entry);
             }
+            flush(batch, batched);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            syncMetrics.phase(SyncMetrics.PHASE_PUSH, started);
+            syncMetrics.finishRun();
+        }
+    }
+
+    private void flush(GtasksBatch batch, List<GtasksOutbox.Entry> entries) throws IOException {
+        batch.execute();
+        for (GtasksOutbox.Entry entry : entries) {
+            outbox.remove(entry);
         }
+        entries.clear();
     }
 
+    /**
+     * Block until everything queued so far has been pushed
+     */
     public void waitUntilEmpty() {
         Semaphore sema = new Semaphore(0);
-        operationQueue.offer(new NotifyOp(sema));
+        synchronized (waiting) {
+            waiting.add(sema);
+        }
+        wakeup.release();
         try {
             sema.acquire();
         } catch (InterruptedException e) {
@@ -179,22 +213,40 @@ public class GtasksSyncService {
         }
     }
 
+    /** Synced task columns. Indexes are stored in the outbox, only append to this list */
     private static final Property<?>[] TASK_PROPERTIES = { Task.ID, Task.TITLE,
             Task.NOTES, Task.DUE_DATE, Task.COMPLETION_DATE, Task.DELETION_DATE };
 
     /**
-     * Checks to see if any of the values changed are among the properties we sync
-     * @return false if none of the properties we sync were changed, true otherwise
+     * @return mask of the synced properties present in values, 0 if there are none
      */
-    private boolean checkValuesForProperties(ContentValues values, Property<?>[] properties) {
-        for (Property<?> property : properties) {
+    private static int changedColumns(ContentValues values) {
+        int columns = 0;
+        for (int i = 0 ; i < TASK_PROPERTIES.length ; i++) {
+            Property<?> property = TASK_PROPERTIES[i];
             if (property != Task.ID && values.containsKey(property.name)) {
-                return true;
+                columns |= 1 << i;
             }
         }
-        return false;
+        return columns;
     }
 
+    private static ContentValues changedValues(Task task, int columns) {
+        ContentValues merged = task.getMergedValues();
+        ContentValues values = new ContentValues();
+        for (int i = 0 ; i < TASK_PROPERTIES.length ; i++) {
+            if ((columns & (1 << i)) != 0) {
+                String column = TASK_PROPERTIES[i].name;
+                Object value = merged.get(column);
+                if (value == null) {
+                    values.putNull(column);
+                } else {
+                    AndroidUtilities.putInto(values, column, value);
+                }
+            }
+        }
+        return values;
+    }
 
     public void triggerMoveForMetadata(final Metadata metadata) {
         if (metadata == null) {
@@ -215,13 +267,21 @@ public class GtasksSyncService {
             return;
         }
 
-        operationQueue.offer(new MoveOp(metadata));
+        outbox.enqueue(metadata.getTask(), GtasksOutbox.TYPE_MOVE, 0);
+        wakeup.release();
+    }
+
+    /** Drop pending pushes, e.g. after signing out */
+    public void clearOutbox() {
+        outbox.clear();
     }
 
     /**
-     * Synchronize with server when data changes
+     * Synchronize with server when data changes. Creates are sent right away
+     * with every field. Updates to existing remote tasks send only the
+     * columns in values and are queued on the batch.
      */
-    public void pushTaskOnSave(Task task, ContentValues values, GtasksInvoker invoker) throws IOException {
+    public void pushTaskOnSave(final Task task, ContentValues values, GtasksInvoker invoker, GtasksBatch batch) throws IOException {
         Metadata gtasksMetadata = gtasksMetadataService.getTaskMetadata(task.getId());
         com.google.api.services.tasks.model.Task remoteModel;
         boolean newlyCreated = false;
@@ -249,6 +309,7 @@ public class GtasksSyncService {
 
             remoteModel = new com.google.api.services.tasks.model.Task();
             newlyCreated = true;
+            values = task.getMergedValues();
         } else { //update case
             remoteId = gtasksMetadata.getValue(GtasksMetadata.ID);
             listId = gtasksMetadata.getValue(GtasksMetadata.LIST_ID);
@@ -275,27 +336,37 @@ public class GtasksSyncService {
         if (values.containsKey(Task.NOTES.name)) {
             remoteModel.setNotes(task.getNotes());
         }
-        if (values.containsKey(Task.DUE_DATE.name) && task.hasDueDate()) {
-            remoteModel.setDue(GtasksApiUtilities.unixTimeToGtasksDueDate(task.getDueDate()));
+        if (values.containsKey(Task.DUE_DATE.name)) {
+            remoteModel.setDue(task.hasDueDate()
+                    ? GtasksApiUtilities.unixTimeToGtasksDueDate(task.getDueDate())
+                    : Data.nullOf(DateTime.class));
         }
         if (values.containsKey(Task.COMPLETION_DATE.name)) {
             if (task.isCompleted()) {
                 remoteModel.setCompleted(GtasksApiUtilities.unixTimeToGtasksCompletionTime(task.getCompletionDate()));
                 remoteModel.setStatus("completed"); //$NON-NLS-1$
             } else {
-                remoteModel.setCompleted(null);
+                remoteModel.setCompleted(Data.nullOf(DateTime.class));
                 remoteModel.setStatus("needsAction"); //$NON-NLS-1$
             }
         }
 
         if (!newlyCreated) {
-            try {
-                invoker.updateGtask(listId, remoteModel);
-            } catch(HttpNotFoundException e) {
-                log.error("Received 404 response, deleting {}", gtasksMetadata);
-                metadataDao.delete(gtasksMetadata.getId());
-                return;
-            }
+            final Metadata metadata = gtasksMetadata;
+            batch.patchGtask(listId, remoteModel, new GtasksBatch.Callback() {
+                @Override
+                public void onSuccess(com.google.api.services.tasks.model.Task result) {
+                    pushed(task, metadata);
+                }
+
+                @Override
+                public void onFailure(int statusCode, String message) {
+                    if (statusCode == 404) {
+                        log.error("Received 404 response, deleting {}", metadata);
+                        metadataDao.delete(metadata.getId());
+                    }
+                }
+            });
         } else {
             String parent = gtasksMetadataService.getRemoteParentId(gtasksMetadata);
             String priorSibling = gtasksMetadataService.getRemoteSiblingId(listId, gtasksMetadata);
@@ -306,11 +377,12 @@ public class GtasksSyncService {
                 //Update the metadata for the newly created task
                 gtasksMetadata.setValue(GtasksMetadata.ID, created.getId());
                 gtasksMetadata.setValue(GtasksMetadata.LIST_ID, listId);
-            } else {
-                return;
+                pushed(task, gtasksMetadata);
             }
         }
+    }
 
+    private void pushed(Task task, Metadata gtasksMetadata) {
         task.setModificationDate(DateUtilities.now());
         gtasksMetadata.setValue(GtasksMetadata.LAST_SYNC, DateUtilities.now() + 1000L);
         metadataDao.persist(gtasksMetadata);
@@ -319,8 +391,6 @@ public class GtasksSyncService {
     }
 
     public void pushMetadataOnSave(Metadata model, GtasksInvoker invoker) throws IOException {
-        AndroidUtilities.sleepDeep(1000L);
-
         String taskId = model.getValue(GtasksMetadata.ID);
         String listId = model.getValue(GtasksMetadata.LIST_ID);
         String parent = gtasksMetadataService.getRemoteParentId(model);
@@ -11,6 +11,7 @@ import android.text.TextUtils;
 import com.google.api.services.tasks.model.TaskLists;
 import com.google.api.services.tasks.model.Tasks;
 import com.todoroo.andlib.data.AbstractModel;
+import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Join;
@@ -20,6 +21,7 @@ import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.StoreObjectDao;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.RemoteModel;
 import com.todoroo.astrid.data.SyncFlags;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gtasks.GtasksList;
@@ -29,6 +31,7 @@ import com.todoroo.astrid.gtasks.GtasksMetadataService;
 import com.todoroo.astrid.gtasks.GtasksPreferenceService;
 import com.todoroo.astrid.gtasks.GtasksTaskListUpdater;
 import com.todoroo.astrid.gtasks.api.GoogleTasksException;
+import com.todoroo.astrid.gtasks.api.GtasksBatch;
 import com.todoroo.astrid.gtasks.api.GtasksInvoker;
 import com.todoroo.astrid.gtasks.auth.GtasksTokenValidator;
 import com.todoroo.astrid.service.TaskService;
@@ -40,15 +43,34 @@ import org.tasks.R;
 import org.tasks.injection.ForApplication;
 import org.tasks.preferences.Preferences;
 import org.tasks.sync.SyncExecutor;
+import org.tasks.sync.SyncMetrics;
+import org.tasks.sync.SyncThrottle;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
 import static org.tasks.date.DateTimeUtils.newDate;
 
 @Singleton
@@ -63,8 +85,14 @@ public class GtasksSyncV2Provider {
 
     private final SyncExceptionHandler handler = new SyncExceptionHandler();
 
-    private void finishSync(SyncResultCallback callback) {
-        getUtilities().recordSuccessfulSync();
+    /**
+     * @param successful whether every list was synchronized
+     */
+    private void finishSync(SyncResultCallback callback, boolean successful) {
+        if (successful) {
+            getUtilities().recordSuccessfulSync();
+        }
+        syncMetrics.finishRun();
         callback.finished();
     }
 
@@ -87,12 +115,20 @@ public class GtasksSyncV2Provider {
     private final GtasksTokenValidator gtasksTokenValidator;
     private final GtasksMetadata gtasksMetadataFactory;
     private final SyncExecutor executor;
+    private final GtasksInvoker invoker;
+    private final GtasksDirtyTasks gtasksDirtyTasks;
+    private final SyncThrottle syncThrottle;
+    private final SyncMetrics syncMetrics;
+    private final Map<String, Object> listLocks = new HashMap<>();
+    private final ExecutorService pageFetcher = Executors.newCachedThreadPool();
 
     @Inject
     public GtasksSyncV2Provider(TaskService taskService, StoreObjectDao storeObjectDao, GtasksPreferenceService gtasksPreferenceService,
                                 GtasksSyncService gtasksSyncService, GtasksListService gtasksListService, GtasksMetadataService gtasksMetadataService,
                                 GtasksTaskListUpdater gtasksTaskListUpdater, @ForApplication Context context, Preferences preferences,
-                                GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadata, SyncExecutor executor) {
+                                GtasksTokenValidator gtasksTokenValidator, GtasksMetadata gtasksMetadata, SyncExecutor executor,
+                                GtasksInvoker invoker, GtasksDirtyTasks gtasksDirtyTasks, SyncThrottle syncThrottle,
+                                SyncMetrics syncMetrics) {
         this.taskService = taskService;
         this.storeObjectDao = storeObjectDao;
         this.gtasksPreferenceService = gtasksPreferenceService;
@@ -105,6 +141,10 @@ public class GtasksSyncV2Provider {
         this.gtasksTokenValidator = gtasksTokenValidator;
         this.gtasksMetadataFactory = gtasksMetadata;
         this.executor = executor;
+        this.invoker = invoker;
+        this.gtasksDirtyTasks = gtasksDirtyTasks;
+        this.syncThrottle = syncThrottle;
+        this.syncMetrics = syncMetrics;
     }
 
     private String getName() {
@@ -120,6 +160,8 @@ public class GtasksSyncV2Provider {
         gtasksPreferenceService.setToken(null);
         gtasksPreferenceService.setUserName(null);
         gtasksMetadataService.clearMetadata();
+        gtasksSyncService.clearOutbox();
+        gtasksDirtyTasks.markAll();
     }
 
     public boolean isActive() {
@@ -131,65 +173,136 @@ public class GtasksSyncV2Provider {
             @Override
             public void run() {
                 callback.started();
+                syncMetrics.startRun(SyncMetrics.RUN_SYNC);
 
                 try {
-                    String authToken = getValidatedAuthToken();
-                    final GtasksInvoker invoker = new GtasksInvoker(context, gtasksTokenValidator, authToken);
+                    getValidatedAuthToken();
                     TaskLists remoteLists = null;
+                    long started = currentTimeMillis();
                     try {
                         remoteLists = invoker.allGtaskLists();
                         gtasksListService.updateLists(remoteLists);
                     } catch (IOException e) {
                         handler.handleException("gtasks-sync=io", e); //$NON-NLS-1$
+                    } finally {
+                        syncMetrics.phase(SyncMetrics.PHASE_LISTS, started);
                     }
 
                     if (remoteLists == null) {
-                        finishSync(callback);
+                        finishSync(callback, false);
                         return;
                     }
 
                     List<GtasksList> listsToUpdate = gtasksListService.getListsToUpdate(remoteLists);
+                    recordUnchangedLists(listsToUpdate);
 
                     if (listsToUpdate.isEmpty()) {
-                        finishSync(callback);
+                        gtasksPreferenceService.setQuietSyncs(gtasksPreferenceService.getQuietSyncs() + 1);
+                        finishSync(callback, true);
                         return;
                     }
-
-                    final AtomicInteger finisher = new AtomicInteger(listsToUpdate.size());
-
-                    for (final GtasksList list : listsToUpdate) {
+                    gtasksPreferenceService.setQuietSyncs(0);
+
+                    // a fixed number of workers take lists from a shared queue
+                    final Queue<GtasksList> pending = new ConcurrentLinkedQueue<>(listsToUpdate);
+                    int workers = Math.min(listsToUpdate.size(), gtasksPreferenceService.getSyncConcurrency());
+                    final AtomicInteger finisher = new AtomicInteger(workers);
+                    final AtomicBoolean failed = new AtomicBoolean();
+                    final SyncExceptionHandler listHandler = new SyncExceptionHandler() {
+                        @Override
+                        public void handleException(String tag, Exception e) {
+                            failed.set(true);
+                            super.handleException(tag, e);
+                        }
+                    };
+
+                    for (int i = 0 ; i < workers ; i++) {
                         executor.execute(callback, new Runnable() {
                             @Override
                             public void run() {
-                                synchronizeListHelper(list, invoker, handler);
-                                if (finisher.decrementAndGet() == 0) {
-                                    pushUpdated(invoker);
-                                    finishSync(callback);
+                                try {
+                                    GtasksList list;
+                                    while ((list = pending.poll()) != null) {
+                                        // a failed list doesn't stop the others
+                                        try {
+                                            synchronizeListHelper(list, invoker, listHandler);
+                                        } catch (Exception e) {
+                                            listHandler.handleException("gtasks-sync=list", e); //$NON-NLS-1$
+                                        }
+                                    }
+                                } finally {
+                                    // the last worker out finishes the run
+                                    if (finisher.decrementAndGet() == 0) {
+                                        try {
+                                            pushUpdated(invoker);
+                                        } catch (Exception e) {
+                                            handler.handleException("gtasks-sync=push", e); //$NON-NLS-1$
+                                        } finally {
+                                            finishSync(callback, !failed.get());
+                                        }
+                                    }
                                 }
                             }
                         });
                     }
                 } catch(Exception e) {
                     handler.handleException("gtasks-sync=io", e); //$NON-NLS-1$
+                    syncMetrics.finishRun();
                     callback.finished();
                 }
             }
         });
     }
 
+    /**
+     * Lists whose remote update time hasn't moved count as quiet syncs
+     */
+    private void recordUnchangedLists(List<GtasksList> listsToUpdate) {
+        Set<Long> updating = new HashSet<>();
+        for (GtasksList list : listsToUpdate) {
+            updating.add(list.getId());
+        }
+        for (GtasksList list : gtasksListService.getLists()) {
+            if (!updating.contains(list.getId())) {
+                syncThrottle.listSynchronized(list.getId(), false);
+            }
+        }
+    }
+
     private synchronized void pushUpdated(GtasksInvoker invoker) {
-        TodorooCursor<Task> queued = taskService.query(Query.select(Task.PROPERTIES).
-                join(Join.left(Metadata.TABLE, Criterion.and(MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY), Task.ID.eq(Metadata.TASK)))).where(
-                        Criterion.or(Task.MODIFICATION_DATE.gt(GtasksMetadata.LAST_SYNC), Metadata.KEY.isNull())));
-        pushTasks(queued, invoker);
+        long started = currentTimeMillis();
+        Set<Long> dirty = new HashSet<>(gtasksDirtyTasks.getTaskIds());
+        pushTasks(taskService.query(pendingPushes(Task.PROPERTIES)), invoker);
+        // tasks that still need a push stay dirty for the next sync
+        TodorooCursor<Task> failed = taskService.query(pendingPushes(Task.ID));
+        try {
+            for (failed.moveToFirst(); !failed.isAfterLast(); failed.moveToNext()) {
+                dirty.remove(failed.get(Task.ID));
+            }
+        } finally {
+            failed.close();
+        }
+        gtasksDirtyTasks.remove(dirty);
+        syncMetrics.phase(SyncMetrics.PHASE_PUSH, started);
     }
 
-    private synchronized void pushTasks(TodorooCursor<Task> queued, GtasksInvoker invoker) {
+    /**
+     * @return dirty tasks that were never pushed or changed after their last push
+     */
+    private static Query pendingPushes(Property<?>... properties) {
+        return Query.select(properties)
+                .join(Join.inner(GtasksDirtyTasks.TABLE, Task.ID.eq(GtasksDirtyTasks.TASK)))
+                .join(Join.left(Metadata.TABLE, Criterion.and(MetadataCriteria.withKey(GtasksMetadata.METADATA_KEY), Task.ID.eq(Metadata.TASK))))
+                .where(Criterion.or(Task.MODIFICATION_DATE.gt(GtasksMetadata.LAST_SYNC), Metadata.KEY.isNull()));
+    }
+
+    private void pushTasks(TodorooCursor<Task> queued, GtasksInvoker invoker) {
+        GtasksBatch batch = invoker.newBatch();
         try {
             for (queued.moveToFirst(); !queued.isAfterLast(); queued.moveToNext()) {
                 Task task = new Task(queued);
                 try {
-                    gtasksSyncService.pushTaskOnSave(task, task.getMergedValues(), invoker);
+                    gtasksSyncService.pushTaskOnSave(task, task.getMergedValues(), invoker, batch);
                 } catch (IOException e) {
                     handler.handleException("gtasks-sync-io", e); //$NON-NLS-1$
                 }
@@ -197,6 +310,11 @@ public class GtasksSyncV2Provider {
         } finally {
             queued.close();
         }
+        try {
+            batch.execute();
+        } catch (IOException e) {
+            handler.handleException("gtasks-sync-io", e); //$NON-NLS-1$
+        }
     }
 
     public void synchronizeList(final GtasksList gtasksList, final SyncResultCallback callback) {
@@ -204,13 +322,16 @@ public class GtasksSyncV2Provider {
             @Override
             public void run() {
                 callback.started();
+                syncMetrics.startRun(SyncMetrics.RUN_LIST);
 
                 try {
-                    String authToken = getValidatedAuthToken();
+                    getValidatedAuthToken();
                     gtasksSyncService.waitUntilEmpty();
-                    final GtasksInvoker service = new GtasksInvoker(context, gtasksTokenValidator, authToken);
-                    synchronizeListHelper(gtasksList, service, null);
+                    synchronizeListHelper(gtasksList, invoker, null);
+                } catch (Exception e) {
+                    handler.handleException("gtasks-sync=list", e); //$NON-NLS-1$
                 } finally {
+                    syncMetrics.finishRun();
                     callback.finished();
                 }
             }
@@ -231,9 +352,39 @@ public class GtasksSyncV2Provider {
         return authToken;
     }
 
-    private synchronized void synchronizeListHelper(GtasksList list, GtasksInvoker invoker,
+    /**
+     * @return lock held while a list is synchronized, so that different lists
+     * can sync in parallel but a list never syncs twice at once
+     */
+    private Object getListLock(String listId) {
+        synchronized (listLocks) {
+            Object lock = listLocks.get(listId);
+            if (lock == null) {
+                lock = new Object();
+                listLocks.put(listId, lock);
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * @return true if remote changes were received
+     */
+    private boolean synchronizeListHelper(GtasksList list, GtasksInvoker invoker,
             SyncExceptionHandler errorHandler) {
-        String listId = list.getRemoteId();
+        boolean changed;
+        long started = currentTimeMillis();
+        synchronized (getListLock(list.getRemoteId())) {
+            changed = synchronizeListLocked(list, invoker, errorHandler);
+        }
+        syncMetrics.phase(SyncMetrics.PHASE_PULL, started);
+        syncThrottle.listSynchronized(list.getId(), changed);
+        return changed;
+    }
+
+    private boolean synchronizeListLocked(GtasksList list, GtasksInvoker invoker,
+            SyncExceptionHandler errorHandler) {
+        final String listId = list.getRemoteId();
         long lastSyncDate = list.getLastSync();
 
         /**
@@ -251,38 +402,183 @@ public class GtasksSyncV2Provider {
         pushTasks(qs, invoker);
 
         boolean includeDeletedAndHidden = lastSyncDate != 0;
+        long updatedMin = lastSyncDate + 1000L;
+        // pages are not ordered by update time, so lastSync only moves once the
+        // whole list is saved. An interrupted download resumes from its page token.
+        String pageToken = gtasksPreferenceService.getPageToken(listId, updatedMin);
+        boolean resumed = pageToken != null;
+        boolean received = resumed;
+        // order and indent only need fixing if a task was added or moved
+        final AtomicBoolean treeChanged = new AtomicBoolean(resumed);
+        final AtomicLong lastUpdate = new AtomicLong(resumed
+                ? Math.max(lastSyncDate, gtasksPreferenceService.getPageLastUpdate(listId))
+                : lastSyncDate);
         try {
-            Tasks taskList = invoker.getAllGtasksFromListId(listId, includeDeletedAndHidden,
-                    includeDeletedAndHidden, lastSyncDate + 1000L);
-            List<com.google.api.services.tasks.model.Task> tasks = taskList.getItems();
-            if (tasks != null) {
-                for (com.google.api.services.tasks.model.Task t : tasks) {
-                    GtasksTaskContainer container = new GtasksTaskContainer(t, listId, gtasksMetadataFactory.createEmptyMetadata(AbstractModel.NO_ID));
-                    gtasksMetadataService.findLocalMatch(container);
-                    container.gtaskMetadata.setValue(GtasksMetadata.GTASKS_ORDER, Long.parseLong(t.getPosition()));
-                    container.gtaskMetadata.setValue(GtasksMetadata.PARENT_TASK, gtasksMetadataService.localIdForGtasksId(t.getParent()));
-                    container.gtaskMetadata.setValue(GtasksMetadata.LAST_SYNC, DateUtilities.now() + 1000L);
-                    write(container);
-                    lastSyncDate = Math.max(lastSyncDate, container.getUpdateTime());
+            Future<Tasks> next = fetchPage(invoker, listId, includeDeletedAndHidden, updatedMin, pageToken);
+            do {
+                Tasks page;
+                try {
+                    page = getPage(next);
+                } catch (IOException e) {
+                    if (resumed) {
+                        // saved token may have expired, start over next time
+                        gtasksPreferenceService.clearPageCheckpoint(listId);
+                    }
+                    throw e;
+                }
+                resumed = false;
+                pageToken = page.getNextPageToken();
+                // download the next page while this one is written
+                next = pageToken == null
+                        ? null
+                        : fetchPage(invoker, listId, includeDeletedAndHidden, updatedMin, pageToken);
+                final List<com.google.api.services.tasks.model.Task> tasks = page.getItems();
+                if (tasks != null) {
+                    received = true;
+                    // resolve local matches and parents for the whole page up front
+                    final Map<String, Metadata> matches = gtasksMetadataService.getMetadataByGtaskIds(remoteIds(tasks));
+                    final Map<Long, Task> localTasks = fetchLocalTasks(matches.values());
+                    taskService.runInTransaction(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (com.google.api.services.tasks.model.Task t : tasks) {
+                                GtasksTaskContainer container = new GtasksTaskContainer(t, listId, gtasksMetadataFactory.createEmptyMetadata(AbstractModel.NO_ID));
+                                Metadata match = matches.get(t.getId());
+                                Task local = null;
+                                if (match != null) {
+                                    local = localTasks.get(match.getTask());
+                                    container.task.setId(match.getTask());
+                                    container.task.setUuid(local == null ? RemoteModel.NO_UUID : local.getUUID());
+                                    container.gtaskMetadata = match;
+                                }
+                                Metadata parent = matches.get(t.getParent());
+                                long remoteOrder = Long.parseLong(t.getPosition());
+                                long parentId = parent == null ? AbstractModel.NO_ID : parent.getTask();
+                                if (treeChanged(match, local, remoteOrder, parentId)) {
+                                    treeChanged.set(true);
+                                }
+                                container.gtaskMetadata.setValue(GtasksMetadata.GTASKS_ORDER, remoteOrder);
+                                container.gtaskMetadata.setValue(GtasksMetadata.PARENT_TASK, parentId);
+                                container.gtaskMetadata.setValue(GtasksMetadata.LAST_SYNC, DateUtilities.now() + 1000L);
+                                write(container, local);
+                                if (container.task.isSaved()) {
+                                    // later tasks in the page may be its children
+                                    matches.put(t.getId(), container.gtaskMetadata);
+                                }
+                                lastUpdate.set(Math.max(lastUpdate.get(), container.getUpdateTime()));
+                            }
+                        }
+                    });
+                    syncMetrics.dbWrites(tasks.size());
+                }
+                if (pageToken != null) {
+                    gtasksPreferenceService.setPageCheckpoint(listId, updatedMin, pageToken, lastUpdate.get());
                 }
-                list.setLastSync(lastSyncDate);
+            } while (next != null);
+
+            gtasksPreferenceService.clearPageCheckpoint(listId);
+            if (received) {
+                list.setLastSync(lastUpdate.get());
                 storeObjectDao.persist(list);
-                gtasksTaskListUpdater.correctOrderAndIndentForList(listId);
             }
+            if (treeChanged.get()) {
+                long started = currentTimeMillis();
+                syncMetrics.dbWrites(gtasksTaskListUpdater.correctOrderAndIndentForList(listId));
+                syncMetrics.phase(SyncMetrics.PHASE_ORDER, started);
+            }
+            return received;
         } catch (IOException e) {
             if (errorHandler != null) {
                 errorHandler.handleException("gtasks-sync-io", e); //$NON-NLS-1$
             } else {
                 log.error(e.getMessage(), e);
             }
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the task is new, or its parent or remote position
+     * differs from what was last synchronized. Tasks created here have no
+     * remote position until they are downloaded or moved.
+     */
+    static boolean treeChanged(Metadata match, Task local, long remoteOrder, long parentId) {
+        return match == null || local == null ||
+                !match.containsNonNullValue(GtasksMetadata.GTASKS_ORDER) ||
+                match.getValue(GtasksMetadata.GTASKS_ORDER) != remoteOrder ||
+                !match.containsNonNullValue(GtasksMetadata.PARENT_TASK) ||
+                match.getValue(GtasksMetadata.PARENT_TASK) != parentId;
+    }
+
+    private Future<Tasks> fetchPage(final GtasksInvoker invoker, final String listId, final boolean includeDeletedAndHidden,
+                                    final long updatedMin, final String pageToken) {
+        return pageFetcher.submit(new Callable<Tasks>() {
+            @Override
+            public Tasks call() throws IOException {
+                return invoker.getAllGtasksFromListId(listId, includeDeletedAndHidden,
+                        includeDeletedAndHidden, updatedMin, pageToken);
+            }
+        });
+    }
+
+    private static Tasks getPage(Future<Tasks> page) throws IOException {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            page.cancel(true);
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static Set<String> remoteIds(List<com.google.api.services.tasks.model.Task> tasks) {
+        Set<String> result = new HashSet<>();
+        for (com.google.api.services.tasks.model.Task task : tasks) {
+            result.add(task.getId());
+            if (task.getParent() != null) {
+                result.add(task.getParent());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the fields of matched local tasks needed to merge remote changes, keyed by id
+     */
+    private Map<Long, Task> fetchLocalTasks(Collection<Metadata> matches) {
+        Map<Long, Task> result = new HashMap<>();
+        if (matches.isEmpty()) {
+            return result;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Metadata metadata : matches) {
+            ids.add(metadata.getTask());
+        }
+        TodorooCursor<Task> cursor = taskService.query(Query.select(Task.ID, Task.UUID, Task.DUE_DATE, Task.COMPLETION_DATE)
+                .where(Task.ID.in(ids)));
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                Task task = new Task(cursor);
+                result.put(task.getId(), task);
+            }
+        } finally {
+            cursor.close();
         }
+        return result;
     }
 
-    private void write(GtasksTaskContainer task) {
+    /**
+     * @param local matched local task, or null if there is none
+     */
+    private void write(GtasksTaskContainer task, Task local) {
         //  merge astrid dates with google dates
 
         if(task.task.isSaved()) {
-            Task local = taskService.fetchById(task.task.getId(), Task.DUE_DATE, Task.COMPLETION_DATE);
             if (local == null) {
                 task.task.clearValue(Task.ID);
                 task.task.clearValue(Task.UUID);
@@ -5,13 +5,19 @@
  */
 package com.todoroo.astrid.reminders;
 
+import android.app.Notification;
 import android.app.PendingIntent;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Resources;
 import android.os.Bundle;
+import android.support.v4.app.NotificationCompat;
 import android.text.TextUtils;
 
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Query;
 import com.todoroo.andlib.sql.QueryTemplate;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.activity.TaskListActivity;
@@ -20,6 +26,7 @@ import com.todoroo.astrid.api.FilterWithCustomIntent;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.utility.Constants;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +38,13 @@ import org.tasks.intents.TaskIntents;
 import org.tasks.notifications.NotificationManager;
 import org.tasks.preferences.Preferences;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.inject.Inject;
 
 public class Notifications extends InjectingBroadcastReceiver {
@@ -55,12 +69,40 @@ public class Notifications extends InjectingBroadcastReceiver {
     public static final String EXTRAS_TITLE = "title"; //$NON-NLS-1$
     public static final String EXTRAS_TEXT = "text"; //$NON-NLS-1$
     public static final String EXTRAS_RING_TIMES = "ringTimes"; //$NON-NLS-1$
+    public static final String EXTRAS_GROUP = "group"; //$NON-NLS-1$
+
+    /** Group of the notifications for reminders that fired together */
+    static final String GROUP_REMINDERS = "reminders"; //$NON-NLS-1$
+
+    private static final Property<?>[] PROPERTIES = new Property<?>[] {
+            Task.ID, Task.TITLE, Task.HIDE_UNTIL, Task.COMPLETION_DATE,
+            Task.DUE_DATE, Task.DELETION_DATE, Task.REMINDER_FLAGS
+    };
+
+    private static class Request {
+        private final long taskId;
+        private final PendingIntent intent;
+        private final int type;
+        private final String title;
+        private final String text;
+        private final int ringTimes;
+
+        private Request(long taskId, PendingIntent intent, int type, String title, String text, int ringTimes) {
+            this.taskId = taskId;
+            this.intent = intent;
+            this.type = type;
+            this.title = title;
+            this.text = text;
+            this.ringTimes = ringTimes;
+        }
+    }
 
     @Inject TaskDao taskDao;
     @Inject @ForApplication Context context;
     @Inject NotificationManager notificationManager;
     @Inject Broadcaster broadcaster;
     @Inject Preferences preferences;
+    @Inject ReminderQueue reminderQueue;
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -70,30 +112,108 @@ public class Notifications extends InjectingBroadcastReceiver {
     }
 
     void handle(Intent intent) {
-        long id = intent.getLongExtra(ID_KEY, 0);
-        int type = intent.getIntExtra(EXTRAS_TYPE, (byte) 0);
-        if (!showTaskNotification(id, type)) {
-            notificationManager.cancel((int) id);
+        if (ReminderQueue.ACTION_REMINDERS_DUE.equals(intent.getAction())) {
+            reminderQueue.fired();
+            try {
+                handleDue(DateUtilities.now());
+            } finally {
+                reminderQueue.arm();
+            }
+        } else {
+            long id = intent.getLongExtra(ID_KEY, 0);
+            Task task = fetch(id);
+            List<Request> requests = new ArrayList<>();
+            if (task == null || !showTaskNotification(task, intent.getIntExtra(EXTRAS_TYPE, (byte) 0), requests)) {
+                notificationManager.cancel((int) id);
+            }
+            send(requests);
         }
     }
 
     /**
-     * Show a new notification about the given task. Returns false if there was
-     * some sort of error or the alarm should be disabled.
+     * Deliver every queued reminder that is due. The tasks are read with one
+     * query and stamped in one transaction, rescheduled reminders are queued
+     * on commit with one call to the alarm manager. Notifications are
+     * requested once the transaction has committed, and when several
+     * reminders fire together they are grouped under a summary notification.
      */
-    private boolean showTaskNotification(long id, int type) {
-        Task task;
+    private void handleDue(final long now) {
+        final List<Request> requests = new ArrayList<>();
+        taskDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                List<ReminderQueue.Entry> entries = reminderQueue.removeDue(now);
+                if (entries.isEmpty()) {
+                    return;
+                }
+                Map<Long, Task> tasks = fetch(entries);
+                for (ReminderQueue.Entry entry : entries) {
+                    Task task = tasks.get(entry.task);
+                    if (task == null) {
+                        notificationManager.cancel((int) entry.task);
+                    } else if (task.containsValue(Task.REMINDER_LAST)) {
+                        // a reminder and an alarm for the same task share a notification
+                        continue;
+                    } else if (!showTaskNotification(task, entry.type, requests)) {
+                        notificationManager.cancel((int) entry.task);
+                    }
+                }
+            }
+        });
+        send(requests);
+    }
+
+    private void send(List<Request> requests) {
+        String group = requests.size() > 1 ? GROUP_REMINDERS : null;
+        for (Request request : requests) {
+            broadcaster.requestNotification(request.taskId, request.intent, request.type,
+                    request.title, request.text, request.ringTimes, group);
+        }
+        if (group != null) {
+            showSummary(requests);
+        }
+    }
+
+    private Task fetch(long id) {
         try {
-            task = taskDao.fetch(id, Task.ID, Task.TITLE, Task.HIDE_UNTIL, Task.COMPLETION_DATE,
-                    Task.DUE_DATE, Task.DELETION_DATE, Task.REMINDER_FLAGS);
+            Task task = taskDao.fetch(id, PROPERTIES);
             if (task == null) {
                 throw new IllegalArgumentException("cound not find item with id"); //$NON-NLS-1$
             }
-
+            return task;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
-            return false;
+            return null;
         }
+    }
+
+    private Map<Long, Task> fetch(List<ReminderQueue.Entry> entries) {
+        Set<Long> ids = new HashSet<>();
+        for (ReminderQueue.Entry entry : entries) {
+            ids.add(entry.task);
+        }
+        Map<Long, Task> tasks = new HashMap<>();
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(PROPERTIES).where(Task.ID.in(ids)));
+        try {
+            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                Task task = new Task(cursor);
+                tasks.put(task.getId(), task);
+            }
+        } finally {
+            cursor.close();
+        }
+        return tasks;
+    }
+
+    /**
+     * Show a new notification about the given task. Returns false if there was
+     * some sort of error or the alarm should be disabled.
+     *
+     * @param requests notification to show is added here, it is requested
+     * once the reminder time has been saved
+     */
+    private boolean showTaskNotification(Task task, int type, List<Request> requests) {
+        long id = task.getId();
 
         // you're done, or not yours - don't sound, do delete
         if (task.isCompleted() || task.isDeleted()) {
@@ -134,10 +254,40 @@ public class Notifications extends InjectingBroadcastReceiver {
                 ? TaskIntents.getEditTaskPendingIntent(context, null, task.getId())
                 : createNotificationIntent(id, taskTitle);
 
-        broadcaster.requestNotification((int) id, intent, type, taskTitle, text, ringTimes);
+        requests.add(new Request(id, intent, type, taskTitle, text, ringTimes));
         return true;
     }
 
+    /**
+     * Silent notification listing the titles of reminders that fired together
+     */
+    private void showSummary(List<Request> requests) {
+        Resources r = context.getResources();
+        String title = r.getString(R.string.rmd_NoA_filter);
+        String text = r.getQuantityString(R.plurals.Ntasks, requests.size(), requests.size());
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle()
+                .setBigContentTitle(title)
+                .setSummaryText(text);
+        for (Request request : requests) {
+            style.addLine(request.title);
+        }
+        Intent intent = new Intent(context, TaskListActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        Notification notification = new NotificationCompat.Builder(context)
+                .setSmallIcon(R.drawable.notif_astrid)
+                .setWhen(System.currentTimeMillis())
+                .setContentTitle(title)
+                .setContentText(text)
+                .setNumber(requests.size())
+                .setStyle(style)
+                .setGroup(GROUP_REMINDERS)
+                .setGroupSummary(true)
+                .setAutoCancel(true)
+                .setContentIntent(PendingIntent.getActivity(context, Constants.NOTIFICATION_REMINDERS, intent, PendingIntent.FLAG_UPDATE_CURRENT))
+                .build();
+        notificationManager.notify(Constants.NOTIFICATION_REMINDERS, notification);
+    }
+
     private PendingIntent createNotificationIntent(final long id, final String taskTitle) {
         final FilterWithCustomIntent itemFilter = new FilterWithCustomIntent(context.getString(R.string.rmd_NoA_filter),
                 context.getString(R.string.rmd_NoA_filter),
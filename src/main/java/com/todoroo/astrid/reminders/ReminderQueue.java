@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2012 Todoroo Inc
+ *
+ * See the file "LICENSE" for the full license governing this code.
+ */
+package com.todoroo.astrid.reminders;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+
+import com.todoroo.andlib.data.Property.IntegerProperty;
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.dao.Database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static org.tasks.date.DateTimeUtils.printTimestamp;
+
+/**
+ * Upcoming reminders ordered by time: the next reminder computed for each
+ * task by {@link ReminderService}, and the custom alarms set by
+ * {@link com.todoroo.astrid.alarms.AlarmService}. Only the earliest entry is
+ * registered with the {@link AlarmManager}. When it fires,
+ * {@link Notifications} takes every entry that is due and the alarm is set
+ * again for the next one, so scheduling is a database write and usually no
+ * system call at all.
+ */
+@Singleton
+public class ReminderQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderQueue.class);
+
+    /** Broadcast sent to {@link Notifications} when the earliest reminder is due */
+    public static final String ACTION_REMINDERS_DUE = "org.tasks.REMINDERS_DUE"; //$NON-NLS-1$
+
+    public static final Table TABLE = new Table("reminder_queue", null);
+
+    public static final LongProperty TASK = new LongProperty(TABLE, "task");
+
+    /** Id of the custom alarm metadata, or {@link #REMINDER} for the task's own reminder */
+    public static final LongProperty ALARM = new LongProperty(TABLE, "alarm");
+
+    public static final long REMINDER = 0;
+
+    public static final LongProperty TIME = new LongProperty(TABLE, "time");
+
+    /** One of the ReminderService.TYPE_ constants */
+    public static final IntegerProperty TYPE = new IntegerProperty(TABLE, "type");
+
+    public static class Entry {
+        public final long task;
+        public final long alarm;
+        public final long time;
+        public final int type;
+
+        private Entry(long task, long alarm, long time, int type) {
+            this.task = task;
+            this.alarm = alarm;
+            this.time = time;
+            this.type = type;
+        }
+    }
+
+    /**
+     * @return statements that create the table and its index
+     */
+    public static String[] createSql() {
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS " + TABLE.name + " (" +
+                        TASK.name + " INTEGER, " +
+                        ALARM.name + " INTEGER, " +
+                        TIME.name + " INTEGER, " +
+                        TYPE.name + " INTEGER, " +
+                        "PRIMARY KEY (" + TASK.name + ", " + ALARM.name + "))",
+                "CREATE INDEX IF NOT EXISTS rq_time ON " + TABLE.name + "(" + TIME.name + ")"
+        };
+    }
+
+    /**
+     * @return statement that drops the table, for schema upgrades. Entries
+     * are rebuilt when reminders are next scheduled
+     */
+    public static String dropSql() {
+        return "DROP TABLE IF EXISTS " + TABLE.name;
+    }
+
+    private static final String INSERT = "INSERT OR REPLACE INTO " + TABLE.name +
+            " (" + TASK.name + ", " + ALARM.name + ", " + TIME.name + ", " + TYPE.name + ") VALUES (?, ?, ?, ?)";
+
+    private static final String DELETE = "DELETE FROM " + TABLE.name +
+            " WHERE " + TASK.name + " = ? AND " + ALARM.name + " = ?";
+
+    private final Database database;
+    private final Context context;
+    private final Runnable arm = new Runnable() {
+        @Override
+        public void run() {
+            arm();
+        }
+    };
+
+    /** Time currently registered with the alarm manager, -1 if unknown */
+    private long armed = -1;
+
+    @Inject
+    public ReminderQueue(Database database, @ForApplication Context context) {
+        this.database = database;
+        this.context = context;
+    }
+
+    /**
+     * Replace the task's reminder
+     */
+    public void add(long taskId, long time, int type) {
+        database.execSQL(INSERT, new Object[] { taskId, REMINDER, time, type });
+        database.afterCommit(arm);
+    }
+
+    /**
+     * Remove the task's reminder, its custom alarms stay queued
+     */
+    public void remove(long taskId) {
+        database.execSQL(DELETE, new Object[] { taskId, REMINDER });
+        database.afterCommit(arm);
+    }
+
+    public void addAlarm(long taskId, long alarmId, long time) {
+        database.execSQL(INSERT, new Object[] { taskId, alarmId, time, ReminderService.TYPE_ALARM });
+        database.afterCommit(arm);
+    }
+
+    public void removeAlarm(long taskId, long alarmId) {
+        database.execSQL(DELETE, new Object[] { taskId, alarmId });
+        database.afterCommit(arm);
+    }
+
+    /**
+     * Remove all task reminders, before they are scheduled again
+     */
+    public void clearReminders() {
+        database.execSQL("DELETE FROM " + TABLE.name + " WHERE " + ALARM.name + " = ?", new Object[] { REMINDER });
+        database.afterCommit(arm);
+    }
+
+    /**
+     * Remove all custom alarms, before they are scheduled again
+     */
+    public void clearAlarms() {
+        database.execSQL("DELETE FROM " + TABLE.name + " WHERE " + ALARM.name + " != ?", new Object[] { REMINDER });
+        database.afterCommit(arm);
+    }
+
+    /**
+     * Remove and return every entry due at the given time, oldest first
+     */
+    public List<Entry> removeDue(final long now) {
+        final List<Entry> result = new ArrayList<>();
+        database.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                Cursor cursor = database.rawQuery("SELECT " + TASK.name + ", " + ALARM.name + ", " + TIME.name + ", " + TYPE.name +
+                        " FROM " + TABLE.name + " WHERE " + TIME.name + " <= ? ORDER BY " + TIME.name, new Object[] { now });
+                try {
+                    while (cursor.moveToNext()) {
+                        result.add(new Entry(cursor.getLong(0), cursor.getLong(1), cursor.getLong(2), cursor.getInt(3)));
+                    }
+                } finally {
+                    cursor.close();
+                }
+                database.execSQL("DELETE FROM " + TABLE.name + " WHERE " + TIME.name + " <= ?", new Object[] { now });
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return time of the earliest reminder, or {@link ReminderService#NO_ALARM}
+     */
+    public long getNextTime() {
+        Cursor cursor = database.rawQuery("SELECT MIN(" + TIME.name + ") FROM " + TABLE.name);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : ReminderService.NO_ALARM;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Register the earliest reminder with the alarm manager, unless it is
+     * already registered
+     */
+    public synchronized void arm() {
+        long next = getNextTime();
+        if (next == armed) {
+            return;
+        }
+        armed = next;
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        Intent intent = new Intent(context, Notifications.class);
+        intent.setAction(ACTION_REMINDERS_DUE);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, 0);
+        if (next == ReminderService.NO_ALARM) {
+            log.debug("no reminders scheduled");
+            alarmManager.cancel(pendingIntent);
+        } else {
+            log.debug("next reminder at {}", printTimestamp(next));
+            alarmManager.set(AlarmManager.RTC_WAKEUP, next, pendingIntent);
+        }
+    }
+
+    /**
+     * Called when the registered alarm has fired, the next {@link #arm}
+     * registers the earliest reminder again
+     */
+    public synchronized void fired() {
+        armed = -1;
+    }
+}
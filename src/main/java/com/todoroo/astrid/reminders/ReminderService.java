@@ -5,10 +5,7 @@
  */
 package com.todoroo.astrid.reminders;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
-import android.content.Intent;
 
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.TodorooCursor;
@@ -76,16 +73,19 @@ public final class ReminderService  {
 
     // --- instance variables
 
-    private AlarmScheduler scheduler = new ReminderAlarmScheduler();
+    private AlarmScheduler scheduler;
 
     private long now = -1; // For tracking when reminders might be scheduled all at once
     private Context context;
     private Preferences preferences;
+    private ReminderQueue reminderQueue;
 
     @Inject
-    ReminderService(@ForApplication Context context, Preferences preferences) {
+    ReminderService(@ForApplication Context context, Preferences preferences, ReminderQueue reminderQueue) {
         this.context = context;
         this.preferences = preferences;
+        this.reminderQueue = reminderQueue;
+        scheduler = new ReminderQueueScheduler(reminderQueue);
     }
 
     private static final int MILLIS_PER_HOUR = 60 * 60 * 1000;
@@ -93,23 +93,30 @@ public final class ReminderService  {
     // --- reminder scheduling logic
 
     /**
-     * Schedules all alarms
+     * Rebuilds the reminder queue. Runs in one transaction, so the alarm
+     * manager is only called once at the end.
      */
-    public void scheduleAllAlarms(TaskDao taskDao) {
-        TodorooCursor<Task> cursor = getTasksWithReminders(taskDao, NOTIFICATION_PROPERTIES);
-        try {
-            now = DateUtilities.now(); // Before mass scheduling, initialize now variable
-            for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                Task task = new Task(cursor);
-                scheduleAlarm(task, null);
+    public void scheduleAllAlarms(final TaskDao taskDao) {
+        taskDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                reminderQueue.clearReminders();
+                TodorooCursor<Task> cursor = getTasksWithReminders(taskDao, NOTIFICATION_PROPERTIES);
+                try {
+                    now = DateUtilities.now(); // Before mass scheduling, initialize now variable
+                    for(cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
+                        Task task = new Task(cursor);
+                        scheduleAlarm(task, null);
+                    }
+                } catch (Exception e) {
+                    // suppress
+                    log.error(e.getMessage(), e);
+                } finally {
+                    cursor.close();
+                    now = -1; // Signal done with now variable
+                }
             }
-        } catch (Exception e) {
-            // suppress
-            log.error(e.getMessage(), e);
-        } finally {
-            cursor.close();
-            now = -1; // Signal done with now variable
-        }
+        });
     }
 
     private long getNowValue() {
@@ -126,11 +133,11 @@ public final class ReminderService  {
         scheduleAlarm(task, taskDao);
     }
 
+    /**
+     * A task has at most one queued reminder, clearing any type clears it
+     */
     public void clearAllAlarms(Task task) {
-        scheduler.createAlarm(context, task, NO_ALARM, TYPE_SNOOZE);
-        scheduler.createAlarm(context, task, NO_ALARM, TYPE_RANDOM);
         scheduler.createAlarm(context, task, NO_ALARM, TYPE_DUE);
-        scheduler.createAlarm(context, task, NO_ALARM, TYPE_OVERDUE);
     }
 
     private void scheduleAlarm(Task task, TaskDao taskDao) {
@@ -151,10 +158,10 @@ public final class ReminderService  {
             }
         }
 
-        // Make sure no alarms are scheduled other than the next one. When that one is shown, it
-        // will schedule the next one after it, and so on and so forth.
-        clearAllAlarms(task);
+        // Only the next reminder is queued, and queueing it replaces the previous one. When
+        // it is shown, it will schedule the next one after it, and so on and so forth.
         if(task.isCompleted() || task.isDeleted()) {
+            clearAllAlarms(task);
             return;
         }
 
@@ -395,43 +402,25 @@ public final class ReminderService  {
         return scheduler;
     }
 
-    private static class ReminderAlarmScheduler implements AlarmScheduler {
+    private static class ReminderQueueScheduler implements AlarmScheduler {
+        private final ReminderQueue reminderQueue;
+
+        private ReminderQueueScheduler(ReminderQueue reminderQueue) {
+            this.reminderQueue = reminderQueue;
+        }
+
         /**
-         * Create an alarm for the given task at the given type
+         * Queue the task's next reminder, replacing any other reminder for it
          */
         @Override
         public void createAlarm(Context context, Task task, long time, int type) {
             if(task.getId() == Task.NO_ID) {
                 return;
             }
-            Intent intent = new Intent(context, Notifications.class);
-            intent.setType(Long.toString(task.getId()));
-            intent.setAction(Integer.toString(type));
-            intent.putExtra(Notifications.ID_KEY, task.getId());
-            intent.putExtra(Notifications.EXTRAS_TYPE, type);
-
-            // calculate the unique requestCode as a combination of the task-id and alarm-type:
-            // concatenate id+type to keep the combo unique
-            String rc = String.format("%d%d", task.getId(), type);
-            int requestCode;
-            try {
-                requestCode = Integer.parseInt(rc);
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
-                requestCode = type;
-            }
-            AlarmManager am = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(context, requestCode,
-                    intent, 0);
-
             if (time == 0 || time == NO_ALARM) {
-                am.cancel(pendingIntent);
+                reminderQueue.remove(task.getId());
             } else {
-                if(time < DateUtilities.now()) {
-                    time = DateUtilities.now() + 5000L;
-                }
-
-                am.set(AlarmManager.RTC_WAKEUP, time, pendingIntent);
+                reminderQueue.add(task.getId(), time, type);
             }
         }
     }
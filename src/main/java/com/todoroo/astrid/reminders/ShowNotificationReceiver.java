@@ -10,24 +10,16 @@ import android.net.Uri;
 import android.support.v4.app.NotificationCompat;
 import android.telephony.TelephonyManager;
 
-import com.todoroo.andlib.utility.AndroidUtilities;
 import com.todoroo.andlib.utility.DateUtilities;
-import com.todoroo.astrid.utility.Flags;
-import com.todoroo.astrid.voice.VoiceOutputAssistant;
 
 import org.joda.time.DateTime;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.tasks.R;
 import org.tasks.injection.InjectingBroadcastReceiver;
-import org.tasks.notifications.NotificationManager;
+import org.tasks.notifications.NotificationSequencer;
 import org.tasks.preferences.Preferences;
 import org.tasks.receivers.CompleteTaskReceiver;
 import org.tasks.reminders.SnoozeActivity;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import javax.inject.Inject;
 
 import static org.tasks.date.DateTimeUtils.currentTimeMillis;
@@ -40,14 +32,10 @@ import static org.tasks.date.DateTimeUtils.currentTimeMillis;
  */
 public class ShowNotificationReceiver extends InjectingBroadcastReceiver {
 
-    private static final Logger log = LoggerFactory.getLogger(ShowNotificationReceiver.class);
-
-    private static ExecutorService singleThreadVoicePool = Executors.newSingleThreadExecutor();
     private static long lastNotificationSound = 0L;
 
-    @Inject NotificationManager notificationManager;
+    @Inject NotificationSequencer notificationSequencer;
     @Inject Preferences preferences;
-    @Inject VoiceOutputAssistant voiceOutputAssistant;
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -61,7 +49,8 @@ public class ShowNotificationReceiver extends InjectingBroadcastReceiver {
                 intent.getIntExtra(Notifications.EXTRAS_TYPE, 0),
                 intent.getStringExtra(Notifications.EXTRAS_TITLE),
                 intent.getStringExtra(Notifications.EXTRAS_TEXT),
-                intent.getIntExtra(Notifications.EXTRAS_RING_TIMES, 1));
+                intent.getIntExtra(Notifications.EXTRAS_RING_TIMES, 1),
+                intent.getStringExtra(Notifications.EXTRAS_GROUP));
     }
 
     /**
@@ -103,9 +92,10 @@ public class ShowNotificationReceiver extends InjectingBroadcastReceiver {
      * from preferences. You can make it say anything you like.
      *
      * @param ringTimes number of times to ring (-1 = nonstop)
+     * @param group group shared with a summary notification, or null
      */
     private void showNotification(Context context, int notificationId, final long taskId, final PendingIntent pendingIntent, int type, String title,
-                                  String text, int ringTimes) {
+                                  String text, int ringTimes, String group) {
         // don't ring multiple times if random reminder
         if (type == ReminderService.TYPE_RANDOM) {
             ringTimes = 1;
@@ -121,6 +111,9 @@ public class ShowNotificationReceiver extends InjectingBroadcastReceiver {
                 .setContentTitle(title)
                 .setContentText(text)
                 .setContentIntent(pendingIntent);
+        if (group != null) {
+            builder.setGroup(group);
+        }
         if (preferences.useNotificationActions()) {
             PendingIntent completeIntent = PendingIntent.getBroadcast(context, notificationId, new Intent(context, CompleteTaskReceiver.class) {{
                 putExtra(CompleteTaskReceiver.TASK_ID, taskId);
@@ -157,15 +150,10 @@ public class ShowNotificationReceiver extends InjectingBroadcastReceiver {
         // if multi-ring is activated and the setting p_rmd_maxvolume allows it, set up the flags for insistent
         // notification, and increase the volume to full volume, so the user
         // will actually pay attention to the alarm
-        boolean maxOutVolumeForMultipleRingReminders = preferences.getBoolean(R.string.p_rmd_maxvolume, true);
-        // remember it to set it to the old value after the alarm
-        int previousAlarmVolume = audioManager.getStreamVolume(AudioManager.STREAM_ALARM);
+        boolean maxVolume = false;
         if (ringTimes != 1 && (type != ReminderService.TYPE_RANDOM)) {
             notification.audioStreamType = AudioManager.STREAM_ALARM;
-            if (maxOutVolumeForMultipleRingReminders) {
-                audioManager.setStreamVolume(AudioManager.STREAM_ALARM,
-                        audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM), 0);
-            }
+            maxVolume = preferences.getBoolean(R.string.p_rmd_maxvolume, true);
 
             // insistent rings until notification is disabled
             if (ringTimes < 0) {
@@ -207,68 +195,7 @@ public class ShowNotificationReceiver extends InjectingBroadcastReceiver {
             voiceReminder = false;
         }
 
-        singleThreadVoicePool.submit(new NotificationRunnable(ringTimes, notificationId, notification, voiceReminder,
-                maxOutVolumeForMultipleRingReminders, audioManager, previousAlarmVolume, title,
-                notificationManager, voiceOutputAssistant));
-    }
-
-    private static class NotificationRunnable implements Runnable {
-        private final int ringTimes;
-        private final int notificationId;
-        private final Notification notification;
-        private final boolean voiceReminder;
-        private final boolean maxOutVolumeForMultipleRingReminders;
-        private final AudioManager audioManager;
-        private final int previousAlarmVolume;
-        private final String text;
-        private NotificationManager notificationManager;
-        private final VoiceOutputAssistant voiceOutputAssistant;
-
-        public NotificationRunnable(int ringTimes, int notificationId, Notification notification,
-                                    boolean voiceReminder, boolean maxOutVolume,
-                                    AudioManager audioManager, int previousAlarmVolume,
-                                    String text, NotificationManager notificationManager,
-                                    VoiceOutputAssistant voiceOutputAssistant) {
-            this.ringTimes = ringTimes;
-            this.notificationId = notificationId;
-            this.notification = notification;
-            this.voiceReminder = voiceReminder;
-            this.maxOutVolumeForMultipleRingReminders = maxOutVolume;
-            this.audioManager = audioManager;
-            this.previousAlarmVolume = previousAlarmVolume;
-            this.text = text;
-            this.notificationManager = notificationManager;
-            this.voiceOutputAssistant = voiceOutputAssistant;
-        }
-
-        @Override
-        public void run() {
-            for (int i = 0; i < Math.max(ringTimes, 1); i++) {
-                notificationManager.notify(notificationId, notification);
-                AndroidUtilities.sleepDeep(500);
-            }
-            Flags.set(Flags.REFRESH); // Forces a reload when app launches
-            if (voiceReminder || maxOutVolumeForMultipleRingReminders) {
-                AndroidUtilities.sleepDeep(2000);
-                for (int i = 0; i < 50; i++) {
-                    AndroidUtilities.sleepDeep(500);
-                    if (audioManager.getMode() != AudioManager.MODE_RINGTONE) {
-                        break;
-                    }
-                }
-                try {
-                    // first reset the Alarm-volume to the value before it was eventually maxed out
-                    if (maxOutVolumeForMultipleRingReminders) {
-                        audioManager.setStreamVolume(AudioManager.STREAM_ALARM, previousAlarmVolume, 0);
-                    }
-                    if (voiceReminder) {
-                        voiceOutputAssistant.speak(text);
-                    }
-                } catch (VerifyError e) {
-                    // unavailable
-                    log.error(e.getMessage(), e);
-                }
-            }
-        }
+        notificationSequencer.play(notificationId, notification, ringTimes, maxVolume,
+                voiceReminder ? title : null);
     }
 }
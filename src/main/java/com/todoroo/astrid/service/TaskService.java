@@ -115,6 +115,13 @@ public class TaskService {
         refreshScheduler.scheduleRefresh(item);
     }
 
+    /**
+     * Run the given operation in a single database transaction
+     */
+    public void runInTransaction(Runnable runnable) {
+        taskDao.runInTransaction(runnable);
+    }
+
     private void saveWithoutPublishingFilterUpdate(Task item) {
         taskDao.save(item);
     }
@@ -0,0 +1,86 @@
+package com.todoroo.astrid.tags;
+
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Property.StringProperty;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+
+/**
+ * Denormalized tag names for each task, one row per task. The table is
+ * maintained by triggers on the metadata table, so every tag write keeps it
+ * current whether it goes through {@link TagService}, a bulk update, an
+ * import or a delete.
+ */
+public final class TaskTagSummary {
+
+    public static final Table TABLE = new Table("task_tags", null);
+
+    /** Task id */
+    public static final LongProperty TASK = new LongProperty(TABLE, "task");
+
+    /** Tag names joined with {@link #SEPARATOR}, or null if the task has no tags */
+    public static final StringProperty TAGS = new StringProperty(TABLE, "tags");
+
+    public static final String SEPARATOR = "  |  "; //$NON-NLS-1$
+
+    private TaskTagSummary() {
+        // utility class
+    }
+
+    /**
+     * @return statements that create the summary table and its triggers
+     */
+    public static String[] createSql() {
+        String isTag = " = '" + TaskToTagMetadata.KEY + "'";
+        return new String[] {
+                "CREATE TABLE IF NOT EXISTS " + TABLE.name + " (" +
+                        TASK.name + " INTEGER PRIMARY KEY, " +
+                        TAGS.name + " TEXT)",
+                "CREATE TRIGGER IF NOT EXISTS task_tags_insert AFTER INSERT ON " + Metadata.TABLE.name +
+                        " WHEN new." + Metadata.KEY.name + isTag +
+                        " BEGIN " + summarize("new") + "; END",
+                "CREATE TRIGGER IF NOT EXISTS task_tags_update AFTER UPDATE OF " +
+                        Metadata.TASK.name + ", " + Metadata.KEY.name + ", " +
+                        TaskToTagMetadata.TAG_NAME.name + ", " + Metadata.DELETION_DATE.name +
+                        " ON " + Metadata.TABLE.name +
+                        " WHEN old." + Metadata.KEY.name + isTag + " OR new." + Metadata.KEY.name + isTag +
+                        " BEGIN " + summarize("old") + "; " + summarize("new") + "; END",
+                "CREATE TRIGGER IF NOT EXISTS task_tags_delete AFTER DELETE ON " + Metadata.TABLE.name +
+                        " WHEN old." + Metadata.KEY.name + isTag +
+                        " BEGIN " + summarize("old") + "; END",
+                "CREATE TRIGGER IF NOT EXISTS task_tags_task_delete AFTER DELETE ON " + Task.TABLE.name +
+                        " BEGIN DELETE FROM " + TABLE.name + " WHERE " + TASK.name + " = old." + Task.ID.name + "; END"
+        };
+    }
+
+    /**
+     * @return statement that rebuilds the summary for every task
+     */
+    public static String populateSql() {
+        return "INSERT OR REPLACE INTO " + TABLE.name + " (" + TASK.name + ", " + TAGS.name + ") " +
+                "SELECT " + Metadata.TASK.name + ", " + concatenatedTagNames() +
+                " FROM " + Metadata.TABLE.name +
+                " WHERE " + Metadata.KEY.name + " = '" + TaskToTagMetadata.KEY + "'" +
+                " AND " + Metadata.DELETION_DATE.name + " = 0" +
+                " GROUP BY " + Metadata.TASK.name;
+    }
+
+    /**
+     * Trigger body that recomputes the row for the metadata row's task. Uses
+     * the md_tkid index, so it only touches that task's metadata.
+     */
+    private static String summarize(String row) {
+        String taskId = row + "." + Metadata.TASK.name;
+        return "INSERT OR REPLACE INTO " + TABLE.name + " (" + TASK.name + ", " + TAGS.name + ") " +
+                "VALUES (" + taskId + ", (SELECT " + concatenatedTagNames() +
+                " FROM " + Metadata.TABLE.name +
+                " WHERE " + Metadata.TASK.name + " = " + taskId +
+                " AND " + Metadata.KEY.name + " = '" + TaskToTagMetadata.KEY + "'" +
+                " AND " + Metadata.DELETION_DATE.name + " = 0))";
+    }
+
+    private static String concatenatedTagNames() {
+        return "group_concat(nullif(" + TaskToTagMetadata.TAG_NAME.name + ", ''), '" + SEPARATOR + "')";
+    }
+}
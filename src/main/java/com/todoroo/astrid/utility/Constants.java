@@ -25,4 +25,7 @@ public final class Constants {
 
     /** Notification Manager id for timing */
     public static final int NOTIFICATION_TIMER = -2;
+
+    /** Notification Manager id for the summary of reminders that fired together */
+    public static final int NOTIFICATION_REMINDERS = -3;
 }
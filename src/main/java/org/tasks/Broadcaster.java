@@ -7,7 +7,6 @@ import android.content.Intent;
 import com.todoroo.astrid.api.AstridApiConstants;
 import com.todoroo.astrid.reminders.NotificationFragment;
 import com.todoroo.astrid.reminders.Notifications;
-import com.todoroo.astrid.reminders.ReminderService;
 import com.todoroo.astrid.utility.Constants;
 
 import org.tasks.injection.ForApplication;
@@ -44,8 +43,12 @@ public class Broadcaster {
         }});
     }
 
+    /**
+     * @param group notification group shared with a summary, or null
+     */
     public void requestNotification(final long taskId, final PendingIntent intent, final int type,
-                                    final String title, final String text, final int ringTimes) {
+                                    final String title, final String text, final int ringTimes,
+                                    final String group) {
         sendOrderedBroadcast(new Intent(BROADCAST_IN_APP_NOTIFY) {{
             putExtra(Notifications.EXTRAS_NOTIF_ID, (int) taskId);
             putExtra(NotificationFragment.TOKEN_ID, taskId);
@@ -54,17 +57,10 @@ public class Broadcaster {
             putExtra(Notifications.EXTRAS_TITLE, title);
             putExtra(Notifications.EXTRAS_TEXT, text);
             putExtra(Notifications.EXTRAS_RING_TIMES, ringTimes);
+            putExtra(Notifications.EXTRAS_GROUP, group);
         }}, AstridApiConstants.PERMISSION_READ);
     }
 
-    public void requestNotification(final long alarmId, final long taskId) {
-        sendOrderedBroadcast(new Intent(context, Notifications.class) {{
-            setAction("ALARM" + alarmId); //$NON-NLS-1$
-            putExtra(Notifications.ID_KEY, taskId);
-            putExtra(Notifications.EXTRAS_TYPE, ReminderService.TYPE_ALARM);
-        }});
-    }
-
     public void taskCompleted(final long id) {
         sendOrderedBroadcast(new Intent(AstridApiConstants.BROADCAST_EVENT_TASK_COMPLETED) {{
             putExtra(AstridApiConstants.EXTRAS_TASK_ID, id);
@@ -75,6 +71,13 @@ public class Broadcaster {
         context.sendBroadcast(new Intent(AstridApiConstants.BROADCAST_EVENT_REFRESH));
     }
 
+    public void taskUpdated(final long taskId, final String[] changedColumns) {
+        context.sendBroadcast(new Intent(AstridApiConstants.BROADCAST_EVENT_REFRESH) {{
+            putExtra(AstridApiConstants.EXTRAS_TASK_ID, taskId);
+            putExtra(AstridApiConstants.EXTRAS_CHANGED_COLUMNS, changedColumns);
+        }});
+    }
+
     private void sendOrderedBroadcast(Intent intent) {
         sendOrderedBroadcast(intent, null);
     }
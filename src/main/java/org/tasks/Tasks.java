@@ -57,5 +57,7 @@ public class Tasks extends InjectingApplication {
         super.onCreate();
 
         preferences.setupLogger();
+
+        database.openInBackground();
     }
 }
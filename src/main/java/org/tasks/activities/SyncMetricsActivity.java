@@ -0,0 +1,106 @@
+package org.tasks.activities;
+
+import android.content.DialogInterface;
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.AlertDialog;
+
+import com.todoroo.andlib.utility.DateUtilities;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.R;
+import org.tasks.injection.InjectingActivity;
+import org.tasks.sync.SyncMetrics;
+
+import java.util.Iterator;
+
+import javax.inject.Inject;
+
+import static org.tasks.date.DateTimeUtils.newDate;
+
+/**
+ * Shows the recorded sync runs, newest first, and shares them as json
+ */
+public class SyncMetricsActivity extends InjectingActivity {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncMetricsActivity.class);
+
+    @Inject SyncMetrics syncMetrics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        final JSONArray history = syncMetrics.getHistory();
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.sync_metrics)
+                .setMessage(history.length() == 0 ? getString(R.string.sync_metrics_empty) : describe(history))
+                .setPositiveButton(R.string.sync_metrics_export, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        Intent intent = new Intent(Intent.ACTION_SEND);
+                        intent.setType("text/plain");
+                        intent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.sync_metrics));
+                        intent.putExtra(Intent.EXTRA_TEXT, history.toString());
+                        startActivity(Intent.createChooser(intent, getString(R.string.sync_metrics_export)));
+                        finish();
+                    }
+                })
+                .setNeutralButton(R.string.sync_metrics_clear, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        syncMetrics.clearHistory();
+                        finish();
+                    }
+                })
+                .setNegativeButton(android.R.string.cancel, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        finish();
+                    }
+                })
+                .setOnCancelListener(new DialogInterface.OnCancelListener() {
+                    @Override
+                    public void onCancel(DialogInterface dialog) {
+                        finish();
+                    }
+                })
+                .show();
+    }
+
+    private String describe(JSONArray history) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = history.length() - 1 ; i >= 0 ; i--) {
+            try {
+                JSONObject run = history.getJSONObject(i);
+                builder.append(DateUtilities.getDateStringWithTime(this, newDate(run.getLong("started"))))
+                        .append(" ").append(run.getString("trigger"))
+                        .append(": ").append(run.getLong("millis")).append("ms\n")
+                        .append(run.getInt("requests")).append(" requests, ")
+                        .append(run.getInt("failures")).append(" failed, ")
+                        .append(run.getLong("bytesSent")).append("B sent, ")
+                        .append(run.getLong("bytesReceived")).append("B received\n")
+                        .append("latency ").append(run.getJSONArray("latency")).append("\n");
+                JSONObject phases = run.getJSONObject("phases");
+                Iterator<String> names = phases.keys();
+                while (names.hasNext()) {
+                    String name = names.next();
+                    JSONObject phase = phases.getJSONObject(name);
+                    builder.append(name).append(" ").append(phase.getLong("millis")).append("ms");
+                    if (phase.getLong("count") > 1) {
+                        builder.append(" (").append(phase.getLong("count")).append(")");
+                    }
+                    builder.append(", ");
+                }
+                builder.append(run.getInt("dbWrites")).append(" writes\n\n");
+            } catch (JSONException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return builder.toString().trim();
+    }
+}
@@ -32,6 +32,7 @@ import org.tasks.activities.DeleteCompletedEventsActivity;
 import org.tasks.activities.ExportTaskActivity;
 import org.tasks.activities.ImportTaskActivity;
 import org.tasks.activities.PurgeDeletedActivity;
+import org.tasks.activities.SyncMetricsActivity;
 import org.tasks.preferences.AppearancePreferences;
 import org.tasks.preferences.BackupPreferences;
 import org.tasks.preferences.BasicPreferences;
@@ -78,6 +79,7 @@ import dagger.Provides;
                 DeleteCompletedEventsActivity.class,
                 DeleteAllCalendarEventsActivity.class,
                 ClearGtaskDataActivity.class,
+                SyncMetricsActivity.class,
                 ReminderPreferences.class,
                 AppearancePreferences.class,
                 BackupPreferences.class
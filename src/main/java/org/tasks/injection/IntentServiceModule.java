@@ -7,7 +7,6 @@ import dagger.Module;
 
 @Module(addsTo = TasksModule.class,
         injects = {
-                AlarmSchedulingIntentService.class,
                 BackupIntentService.class,
                 GtasksBackgroundService.class,
                 MidnightRefreshService.class,
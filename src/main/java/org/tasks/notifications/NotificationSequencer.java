@@ -0,0 +1,156 @@
+package org.tasks.notifications;
+
+import android.app.Notification;
+import android.content.Context;
+import android.media.AudioManager;
+
+import com.todoroo.astrid.utility.Flags;
+import com.todoroo.astrid.voice.VoiceOutputAssistant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.injection.ForApplication;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Rings reminders and reads them aloud. Each reminder is a sequence of
+ * steps on a scheduled executor rather than a sleeping thread, so a reminder
+ * that rings many times doesn't hold up the ones posted after it. The alarm
+ * stream stays at full volume until the last reminder that raised it is done.
+ */
+@Singleton
+public class NotificationSequencer {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationSequencer.class);
+
+    static final long RING_INTERVAL = 500;
+
+    /** Time for the notification sound to start before the ringer mode is polled */
+    static final long SETTLE_DELAY = 3000;
+
+    static final long POLL_INTERVAL = 500;
+
+    static final int MAX_POLLS = 50;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final NotificationManager notificationManager;
+    private final VoiceOutputAssistant voiceOutputAssistant;
+    private final AudioManager audioManager;
+
+    // only used on the executor thread
+    private int volumeHolds;
+    private int previousAlarmVolume;
+
+    @Inject
+    public NotificationSequencer(@ForApplication Context context, NotificationManager notificationManager,
+                                 VoiceOutputAssistant voiceOutputAssistant) {
+        this(notificationManager, voiceOutputAssistant,
+                (AudioManager) context.getSystemService(Context.AUDIO_SERVICE));
+    }
+
+    NotificationSequencer(NotificationManager notificationManager, VoiceOutputAssistant voiceOutputAssistant,
+                          AudioManager audioManager) {
+        this.notificationManager = notificationManager;
+        this.voiceOutputAssistant = voiceOutputAssistant;
+        this.audioManager = audioManager;
+    }
+
+    /**
+     * @param ringTimes number of times to post the notification
+     * @param maxVolume raise the alarm stream to full volume while ringing
+     * @param text spoken once ringing stops, or null
+     */
+    public void play(int notificationId, Notification notification, int ringTimes, boolean maxVolume, String text) {
+        executor.execute(new Sequence(notificationId, notification, Math.max(ringTimes, 1), maxVolume, text));
+    }
+
+    private void holdVolume() {
+        if (volumeHolds++ == 0) {
+            previousAlarmVolume = audioManager.getStreamVolume(AudioManager.STREAM_ALARM);
+            audioManager.setStreamVolume(AudioManager.STREAM_ALARM,
+                    audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM), 0);
+        }
+    }
+
+    private void releaseVolume() {
+        if (--volumeHolds == 0) {
+            audioManager.setStreamVolume(AudioManager.STREAM_ALARM, previousAlarmVolume, 0);
+        }
+    }
+
+    private class Sequence implements Runnable {
+        private final int notificationId;
+        private final Notification notification;
+        private final int ringTimes;
+        private final boolean maxVolume;
+        private final String text;
+
+        private int rings;
+        private int polls;
+
+        private Sequence(int notificationId, Notification notification, int ringTimes, boolean maxVolume, String text) {
+            this.notificationId = notificationId;
+            this.notification = notification;
+            this.ringTimes = ringTimes;
+            this.maxVolume = maxVolume;
+            this.text = text;
+        }
+
+        @Override
+        public void run() {
+            try {
+                step();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+
+        private void step() {
+            if (rings < ringTimes) {
+                if (rings == 0 && maxVolume) {
+                    holdVolume();
+                }
+                notificationManager.notify(notificationId, notification);
+                if (++rings < ringTimes) {
+                    schedule(RING_INTERVAL);
+                    return;
+                }
+                Flags.set(Flags.REFRESH); // Forces a reload when app launches
+                if (maxVolume || text != null) {
+                    schedule(SETTLE_DELAY);
+                }
+                return;
+            }
+            if (polls++ < MAX_POLLS && audioManager.getMode() == AudioManager.MODE_RINGTONE) {
+                schedule(POLL_INTERVAL);
+                return;
+            }
+            finish();
+        }
+
+        private void finish() {
+            if (maxVolume) {
+                releaseVolume();
+            }
+            if (text != null) {
+                try {
+                    voiceOutputAssistant.speak(text);
+                } catch (VerifyError e) {
+                    // unavailable
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+
+        private void schedule(long delay) {
+            executor.schedule(this, delay, MILLISECONDS);
+        }
+    }
+}
@@ -6,6 +6,7 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 
 import com.google.api.client.repackaged.com.google.common.base.Joiner;
+import com.todoroo.astrid.dao.Database;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,12 +27,13 @@ public class DeviceInfo {
     private static final Logger log = LoggerFactory.getLogger(DeviceInfo.class);
 
     private Context context;
+    private final Database database;
     private Boolean isPlayStoreAvailable;
-    private String debugInfo;
 
     @Inject
-    public DeviceInfo(@ForApplication Context context) {
+    public DeviceInfo(@ForApplication Context context, Database database) {
         this.context = context;
+        this.database = database;
     }
 
     public boolean isPlayStoreAvailable() {
@@ -47,11 +49,8 @@ public class DeviceInfo {
     }
 
     public String getDebugInfo() {
-        if (debugInfo == null) {
-            debugInfo = buildDebugString();
-        }
-
-        return debugInfo;
+        // not cached, the database may finish opening after the first call
+        return buildDebugString();
     }
 
     private String buildDebugString() {
@@ -64,6 +63,7 @@ public class DeviceInfo {
                     "Model: " + Build.MANUFACTURER + " " + Build.MODEL,
                     "Product: " + Build.PRODUCT + " (" + Build.DEVICE + ")",
                     "Kernel: " + System.getProperty("os.version") + " (" + Build.VERSION.INCREMENTAL + ")",
+                    "Database open: " + database.getOpenTime() + "ms",
                     "----------",
                     ""
             ));
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.Broadcaster;
 import org.tasks.injection.InjectingBroadcastReceiver;
+import org.tasks.scheduling.RefreshScheduler;
 
 import javax.inject.Inject;
 
@@ -15,6 +16,7 @@ public class RefreshReceiver extends InjectingBroadcastReceiver {
     private static final Logger log = LoggerFactory.getLogger(RefreshReceiver.class);
 
     @Inject Broadcaster broadcaster;
+    @Inject RefreshScheduler refreshScheduler;
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -22,6 +24,7 @@ public class RefreshReceiver extends InjectingBroadcastReceiver {
 
         log.debug("onReceive(context, {})", intent);
 
+        refreshScheduler.refreshed();
         broadcaster.refresh();
     }
 }
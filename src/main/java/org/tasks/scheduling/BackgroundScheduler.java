@@ -17,7 +17,6 @@ public class BackgroundScheduler {
 
     public void scheduleEverything() {
         context.startService(new Intent(context, RefreshSchedulerIntentService.class));
-        context.startService(new Intent(context, AlarmSchedulingIntentService.class));
         context.startService(new Intent(context, ReminderSchedulerIntentService.class));
         scheduleBackupService();
         scheduleMidnightRefresh();
@@ -9,6 +9,7 @@ import org.tasks.Broadcaster;
 import org.tasks.R;
 import org.tasks.preferences.Preferences;
 import org.tasks.sync.RecordSyncStatusCallback;
+import org.tasks.sync.SyncThrottle;
 
 import javax.inject.Inject;
 
@@ -18,10 +19,14 @@ public class GtasksBackgroundService extends RecurringIntervalIntentService {
 
     private static final Logger log = LoggerFactory.getLogger(GtasksBackgroundService.class);
 
+    /** Quiet syncs double the interval, up to this many times */
+    private static final int MAX_QUIET_SHIFT = 2;
+
     @Inject Preferences preferences;
     @Inject GtasksPreferenceService gtasksPreferenceService;
     @Inject GtasksSyncV2Provider gtasksSyncV2Provider;
     @Inject Broadcaster broadcaster;
+    @Inject SyncThrottle syncThrottle;
 
     public GtasksBackgroundService() {
         super(GtasksBackgroundService.class.getSimpleName());
@@ -33,6 +38,10 @@ public class GtasksBackgroundService extends RecurringIntervalIntentService {
             log.debug("aborting: sync ongoing");
             return;
         }
+        if (syncThrottle.isBackingOff()) {
+            log.debug("aborting: backing off");
+            return;
+        }
         if(gtasksPreferenceService.isLoggedIn() && gtasksSyncV2Provider.isActive()) {
             gtasksSyncV2Provider.synchronizeActiveTasks(new RecordSyncStatusCallback(gtasksPreferenceService, broadcaster));
         }
@@ -41,7 +50,9 @@ public class GtasksBackgroundService extends RecurringIntervalIntentService {
     @Override
     long intervalMillis() {
         try {
-            return SECONDS.toMillis(preferences.getIntegerFromString(R.string.gtasks_GPr_interval_key, 0));
+            long interval = SECONDS.toMillis(preferences.getIntegerFromString(R.string.gtasks_GPr_interval_key, 0));
+            // local changes are pushed as they happen, so dormant accounts can be polled less often
+            return interval << Math.min(gtasksPreferenceService.getQuietSyncs(), MAX_QUIET_SHIFT);
         } catch(Exception e) {
             log.error(e.getMessage(), e);
             preferences.setString(R.string.gtasks_GPr_interval_key, "0");
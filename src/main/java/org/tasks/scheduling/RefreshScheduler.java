@@ -5,81 +5,151 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 
-import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.Property.LongProperty;
 import com.todoroo.andlib.data.TodorooCursor;
 import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.R;
 import org.tasks.injection.ForApplication;
+import org.tasks.preferences.Preferences;
 import org.tasks.receivers.RefreshReceiver;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import static android.app.PendingIntent.FLAG_UPDATE_CURRENT;
 import static com.todoroo.andlib.utility.DateUtilities.ONE_MINUTE;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+import static org.tasks.date.DateTimeUtils.printTimestamp;
 
+/**
+ * Refreshes the UI when a due date or hide until date passes. Only the next
+ * boundary is registered with the alarm manager, and it is looked up again
+ * each time the alarm fires. Boundaries closer together than the refresh
+ * window share one refresh.
+ */
 @Singleton
 public class RefreshScheduler {
 
+    private static final Logger log = LoggerFactory.getLogger(RefreshScheduler.class);
+
+    private static final long NO_REFRESH = Long.MAX_VALUE;
+
+    /** The alarm may still be registered from a previous process */
+    private static final long UNKNOWN = -1;
+
+    /** Default minimum time between two refreshes, in seconds */
+    private static final int DEFAULT_WINDOW = 60;
+
     private final TaskDao taskDao;
     private final Context context;
+    private final Preferences preferences;
 
-    private static final Property<?>[] REFRESH_PROPERTIES = new Property<?>[]{
-            Task.DUE_DATE,
-            Task.HIDE_UNTIL
-    };
+    /** Time of the armed alarm, {@link #NO_REFRESH} if none or {@link #UNKNOWN} */
+    private long armed = UNKNOWN;
+    private long lastRefresh;
 
     @Inject
-    public RefreshScheduler(TaskDao taskDao, @ForApplication Context context) {
+    public RefreshScheduler(TaskDao taskDao, @ForApplication Context context, Preferences preferences) {
         this.taskDao = taskDao;
         this.context = context;
+        this.preferences = preferences;
     }
 
-    public void scheduleApplicationRefreshes() {
-        TodorooCursor<Task> cursor = getTasks();
-        try {
-            for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-                Task task = new Task(cursor);
-                scheduleRefresh(task);
-            }
-        } finally {
-            cursor.close();
+    /**
+     * Arm the alarm for the next boundary after now
+     */
+    public synchronized void scheduleApplicationRefreshes() {
+        long now = currentTimeMillis();
+        long next = Math.min(nextBoundary(Task.DUE_DATE, now), nextBoundary(Task.HIDE_UNTIL, now));
+        armed = NO_REFRESH;
+        if (next == NO_REFRESH) {
+            log.debug("no refresh scheduled");
+            cancel();
+        } else {
+            arm(next);
         }
     }
 
-    public void scheduleRefresh(Task task) {
+    /**
+     * Called when the alarm fires, before the UI is refreshed
+     */
+    public synchronized void refreshed() {
+        lastRefresh = currentTimeMillis();
+        scheduleApplicationRefreshes();
+    }
+
+    /**
+     * Move the alarm forward if the task has a boundary before it. Later
+     * boundaries are found when the alarm fires.
+     */
+    public synchronized void scheduleRefresh(Task task) {
+        if (armed == UNKNOWN) {
+            // the registered alarm may be earlier than this task's boundary
+            scheduleApplicationRefreshes();
+            return;
+        }
+        long now = currentTimeMillis();
+        long next = NO_REFRESH;
         if (task.containsValue(Task.DUE_DATE)) {
-            scheduleRefresh(task.getDueDate());
+            next = earliest(next, task.getDueDate(), now);
         }
         if (task.containsValue(Task.HIDE_UNTIL)) {
-            scheduleRefresh(task.getHideUntil());
+            next = earliest(next, task.getHideUntil(), now);
+        }
+        if (task.containsValue(Task.COMPLETION_DATE) && task.isCompleted()) {
+            next = earliest(next, task.getCompletionDate() + ONE_MINUTE, now);
         }
-        if (task.containsValue(Task.COMPLETION_DATE)) {
-            scheduleRefresh(task.getCompletionDate() + ONE_MINUTE);
+        if (next != NO_REFRESH) {
+            arm(next);
         }
     }
 
-    private void scheduleRefresh(Long dueDate) {
-        if (currentTimeMillis() > dueDate) {
+    private static long earliest(long current, long boundary, long now) {
+        return boundary > now ? Math.min(current, boundary) : current;
+    }
+
+    private void arm(long boundary) {
+        long window = SECONDS.toMillis(preferences.getInt(R.string.p_refresh_window, DEFAULT_WINDOW));
+        // refresh just after the boundary, and no sooner than a window after the last refresh
+        long time = Math.max(boundary + 1000, lastRefresh + window);
+        if (time >= armed) {
             return;
         }
+        armed = time;
+        log.debug("next refresh at {}", printTimestamp(time));
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        am.set(AlarmManager.RTC, time, getPendingIntent());
+    }
 
-        dueDate += 1000; // this is ghetto
-        Intent intent = new Intent(context, RefreshReceiver.class);
-        intent.setAction(Long.toString(dueDate));
+    private void cancel() {
         AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, FLAG_UPDATE_CURRENT);
-        am.set(AlarmManager.RTC, dueDate, pendingIntent);
+        am.cancel(getPendingIntent());
     }
 
-    private TodorooCursor<Task> getTasks() {
-        long now = currentTimeMillis();
-        return taskDao.query(Query.select(REFRESH_PROPERTIES).where(Criterion.and(
-                TaskDao.TaskCriteria.isActive(),
-                Criterion.or(Task.HIDE_UNTIL.gt(now), Task.DUE_DATE.gt(now)))));
+    private PendingIntent getPendingIntent() {
+        Intent intent = new Intent(context, RefreshReceiver.class);
+        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    /**
+     * @return earliest value after now for an active task, read from the column's index
+     */
+    private long nextBoundary(LongProperty property, long now) {
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(property)
+                .where(Criterion.and(TaskDao.TaskCriteria.isActive(), property.gt(now)))
+                .orderBy(Order.asc(property))
+                .limit(1));
+        try {
+            return cursor.moveToFirst() ? cursor.get(property) : NO_REFRESH;
+        } finally {
+            cursor.close();
+        }
     }
 }
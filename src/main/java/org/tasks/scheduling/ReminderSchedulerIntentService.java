@@ -1,22 +1,58 @@
 package org.tasks.scheduling;
 
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
 import android.content.Intent;
 
+import com.todoroo.andlib.data.Callback;
+import com.todoroo.andlib.data.TodorooCursor;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.alarms.AlarmFields;
+import com.todoroo.astrid.alarms.AlarmService;
+import com.todoroo.astrid.dao.MetadataDao;
+import com.todoroo.astrid.dao.MetadataDao.MetadataCriteria;
 import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.dao.TaskDao.TaskCriteria;
+import com.todoroo.astrid.data.Metadata;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.reminders.Notifications;
 import com.todoroo.astrid.reminders.ReminderService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.tasks.injection.InjectingIntentService;
+import org.tasks.location.GeofenceService;
+import org.tasks.preferences.Preferences;
 
 import javax.inject.Inject;
 
+/**
+ * Rebuilds the reminder queue from task reminders and custom alarms, then
+ * registers geofences. The queue is rebuilt in one transaction, so the
+ * alarm manager is called once for the earliest entry.
+ *
+ * Releases before the queue registered a PendingIntent for every reminder
+ * and custom alarm. Those are cancelled after the first rebuild, otherwise
+ * they would still fire alongside the queue.
+ */
 public class ReminderSchedulerIntentService extends InjectingIntentService {
 
     private static final Logger log = LoggerFactory.getLogger(ReminderSchedulerIntentService.class);
 
+    private static final String PREF_LEGACY_ALARMS_CANCELLED = "legacy_alarms_cancelled"; //$NON-NLS-1$
+
+    private static final int[] LEGACY_TYPES = new int[] {
+            ReminderService.TYPE_DUE, ReminderService.TYPE_OVERDUE,
+            ReminderService.TYPE_RANDOM, ReminderService.TYPE_SNOOZE
+    };
+
     @Inject ReminderService reminderService;
+    @Inject AlarmService alarmService;
+    @Inject GeofenceService geofenceService;
     @Inject TaskDao taskDao;
+    @Inject MetadataDao metadataDao;
+    @Inject Preferences preferences;
 
     public ReminderSchedulerIntentService() {
         super(ReminderSchedulerIntentService.class.getSimpleName());
@@ -28,6 +64,63 @@ public class ReminderSchedulerIntentService extends InjectingIntentService {
 
         log.debug("onHandleIntent({})", intent);
 
-        reminderService.scheduleAllAlarms(taskDao);
+        taskDao.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                reminderService.scheduleAllAlarms(taskDao);
+                alarmService.scheduleAllAlarms();
+            }
+        });
+        if (!preferences.getBoolean(PREF_LEGACY_ALARMS_CANCELLED, false)) {
+            cancelLegacyAlarms();
+            preferences.setBoolean(PREF_LEGACY_ALARMS_CANCELLED, true);
+        }
+        geofenceService.setupGeofences();
+    }
+
+    private void cancelLegacyAlarms() {
+        final AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
+        TodorooCursor<Task> cursor = taskDao.query(Query.select(Task.ID).where(TaskCriteria.isActive()));
+        try {
+            for (cursor.moveToFirst() ; !cursor.isAfterLast() ; cursor.moveToNext()) {
+                long taskId = cursor.get(Task.ID);
+                for (int type : LEGACY_TYPES) {
+                    Intent intent = new Intent(this, Notifications.class);
+                    intent.setType(Long.toString(taskId));
+                    intent.setAction(Integer.toString(type));
+                    cancel(alarmManager, legacyRequestCode(taskId, type), intent);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        metadataDao.query(new Callback<Metadata>() {
+            @Override
+            public void apply(Metadata alarm) {
+                Intent intent = new Intent(ReminderSchedulerIntentService.this, Notifications.class);
+                intent.setAction("ALARM" + alarm.getId()); //$NON-NLS-1$
+                cancel(alarmManager, (int) alarm.getId(), intent);
+            }
+        }, Query.select(Metadata.ID).where(MetadataCriteria.withKey(AlarmFields.METADATA_KEY)));
+    }
+
+    private void cancel(AlarmManager alarmManager, int requestCode, Intent intent) {
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(this, requestCode, intent,
+                PendingIntent.FLAG_NO_CREATE);
+        if (pendingIntent != null) {
+            alarmManager.cancel(pendingIntent);
+            pendingIntent.cancel();
+        }
+    }
+
+    /**
+     * The task id and alarm type concatenated, as the legacy reminders were registered
+     */
+    private static int legacyRequestCode(long taskId, int type) {
+        try {
+            return Integer.parseInt(String.format("%d%d", taskId, type)); //$NON-NLS-1$
+        } catch (NumberFormatException e) {
+            return type;
+        }
     }
 }
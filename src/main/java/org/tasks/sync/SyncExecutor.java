@@ -2,6 +2,9 @@ package org.tasks.sync;
 
 import com.todoroo.astrid.sync.SyncResultCallback;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -13,6 +16,8 @@ import static java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
 
 public class SyncExecutor {
 
+    private static final Logger log = LoggerFactory.getLogger(SyncExecutor.class);
+
     private final ExecutorService executor = new ThreadPoolExecutor(
             0, Integer.MAX_VALUE,
             60L, TimeUnit.SECONDS,
@@ -30,7 +35,8 @@ public class SyncExecutor {
                 try {
                     command.run();
                 } catch (Exception e) {
-                    executor.shutdownNow();
+                    // the executor is shared, later syncs must still run
+                    log.error(e.getMessage(), e);
                     callback.finished();
                 }
             }
@@ -0,0 +1,194 @@
+package org.tasks.sync;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.tasks.preferences.Preferences;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+
+/**
+ * Counters for sync runs: time spent in each phase, http requests with a
+ * latency histogram and payload sizes, and database writes. Runs may
+ * overlap, e.g. an outbox push during a full sync, in which case they are
+ * recorded together. The last {@link #HISTORY_SIZE} runs are kept in
+ * preferences so they survive a restart and can be exported.
+ */
+@Singleton
+public class SyncMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncMetrics.class);
+
+    public static final String RUN_SYNC = "sync";
+    public static final String RUN_LIST = "list";
+    public static final String RUN_PUSH = "push";
+
+    public static final String PHASE_LISTS = "lists";
+    public static final String PHASE_PULL = "pull";
+    public static final String PHASE_PUSH = "push";
+    public static final String PHASE_ORDER = "order";
+
+    /** Upper bounds of the latency buckets in millis, the last bucket is open ended */
+    static final long[] LATENCY_BUCKETS = { 100, 250, 500, 1000, 2500 };
+
+    static final int HISTORY_SIZE = 20;
+
+    private static final String PREF_HISTORY = "sync_metrics"; //$NON-NLS-1$
+
+    private final Preferences preferences;
+
+    private int active;
+    private String trigger;
+    private long started;
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private final int[] latency = new int[LATENCY_BUCKETS.length + 1];
+    private int requests;
+    private int failures;
+    private long bytesSent;
+    private long bytesReceived;
+    private int dbWrites;
+
+    @Inject
+    public SyncMetrics(Preferences preferences) {
+        this.preferences = preferences;
+    }
+
+    public synchronized void startRun(String trigger) {
+        if (active++ > 0) {
+            return;
+        }
+        this.trigger = trigger;
+        started = currentTimeMillis();
+        phases.clear();
+        for (int i = 0 ; i < latency.length ; i++) {
+            latency[i] = 0;
+        }
+        requests = 0;
+        failures = 0;
+        bytesSent = 0;
+        bytesReceived = 0;
+        dbWrites = 0;
+    }
+
+    /**
+     * Ends a run started with {@link #startRun}. The history is written when
+     * the last overlapping run finishes.
+     */
+    public synchronized void finishRun() {
+        if (active == 0 || --active > 0) {
+            return;
+        }
+        try {
+            JSONObject run = toJson();
+            log.debug("sync metrics: {}", run);
+            JSONArray history = getHistory();
+            JSONArray trimmed = new JSONArray();
+            for (int i = Math.max(0, history.length() - HISTORY_SIZE + 1) ; i < history.length() ; i++) {
+                trimmed.put(history.get(i));
+            }
+            trimmed.put(run);
+            preferences.setString(PREF_HISTORY, trimmed.toString());
+        } catch (JSONException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Adds the time since started to a phase. Phases that run once per list
+     * accumulate, so they can exceed the wall time of a parallel sync.
+     */
+    public synchronized void phase(String name, long startedMillis) {
+        if (active == 0) {
+            return;
+        }
+        long[] phase = phases.get(name);
+        if (phase == null) {
+            phase = new long[2];
+            phases.put(name, phase);
+        }
+        phase[0]++;
+        phase[1] += currentTimeMillis() - startedMillis;
+    }
+
+    /**
+     * @param sent request body size, or a negative number if unknown
+     * @param received response body size, or a negative number if unknown
+     */
+    public synchronized void request(long latencyMillis, long sent, long received) {
+        if (active == 0) {
+            return;
+        }
+        requests++;
+        int bucket = 0;
+        while (bucket < LATENCY_BUCKETS.length && latencyMillis > LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        latency[bucket]++;
+        bytesSent += Math.max(0, sent);
+        bytesReceived += Math.max(0, received);
+    }
+
+    public synchronized void requestFailed() {
+        if (active > 0) {
+            failures++;
+        }
+    }
+
+    public synchronized void dbWrites(int count) {
+        if (active > 0) {
+            dbWrites += count;
+        }
+    }
+
+    /**
+     * @return recorded runs, oldest first
+     */
+    public synchronized JSONArray getHistory() {
+        String history = preferences.getStringValue(PREF_HISTORY);
+        if (history != null) {
+            try {
+                return new JSONArray(history);
+            } catch (JSONException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return new JSONArray();
+    }
+
+    public synchronized void clearHistory() {
+        preferences.clear(PREF_HISTORY);
+    }
+
+    private JSONObject toJson() throws JSONException {
+        JSONObject run = new JSONObject();
+        run.put("trigger", trigger);
+        run.put("started", started);
+        run.put("millis", currentTimeMillis() - started);
+        JSONObject phaseJson = new JSONObject();
+        for (Map.Entry<String, long[]> entry : phases.entrySet()) {
+            phaseJson.put(entry.getKey(), new JSONObject()
+                    .put("count", entry.getValue()[0])
+                    .put("millis", entry.getValue()[1]));
+        }
+        run.put("phases", phaseJson);
+        run.put("requests", requests);
+        run.put("failures", failures);
+        JSONArray histogram = new JSONArray();
+        for (int count : latency) {
+            histogram.put(count);
+        }
+        run.put("latency", histogram);
+        run.put("bytesSent", bytesSent);
+        run.put("bytesReceived", bytesReceived);
+        run.put("dbWrites", dbWrites);
+        return run;
+    }
+}
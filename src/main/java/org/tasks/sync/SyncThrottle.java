@@ -1,6 +1,7 @@
 package org.tasks.sync;
 
-import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -8,19 +9,91 @@ import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.tasks.date.DateTimeUtils.currentTimeMillis;
+import static org.tasks.date.DateTimeUtils.printTimestamp;
+
+/**
+ * Decides when automatic syncs may run. A list is synced again after ten
+ * minutes, and that interval doubles for every sync in a row that found no
+ * remote changes. All syncs pause with exponential backoff while Google
+ * reports that the service is unavailable or the quota is exhausted.
+ */
 @Singleton
 public class SyncThrottle {
 
-    private final Map<Long, DateTime> lastSync = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(SyncThrottle.class);
+
+    static final long LIST_INTERVAL = MINUTES.toMillis(10);
+    static final int MAX_QUIET_SHIFT = 3;
+    static final long MIN_BACKOFF = MINUTES.toMillis(1);
+    static final long MAX_BACKOFF = HOURS.toMillis(1);
+
+    private final Map<Long, Long> lastSync = new HashMap<>();
+    private final Map<Long, Integer> quietSyncs = new HashMap<>();
+    private int failures;
+    private long backoffUntil;
 
     @Inject
     public SyncThrottle() {
     }
 
+    /**
+     * @return true if the list may sync now. The attempt is only recorded
+     * when it is allowed
+     */
     public synchronized boolean canSync(long listId) {
-        DateTime now = new DateTime();
-        DateTime last = lastSync.get(listId);
+        long now = currentTimeMillis();
+        if (now < backoffUntil) {
+            return false;
+        }
+        Long last = lastSync.get(listId);
+        if (last != null && now < last + getInterval(listId)) {
+            return false;
+        }
         lastSync.put(listId, now);
-        return last == null || last.isBefore(now.minusMinutes(10));
+        return true;
+    }
+
+    /**
+     * Record the outcome of a list sync
+     *
+     * @param changed true if the sync received remote changes
+     */
+    public synchronized void listSynchronized(long listId, boolean changed) {
+        if (changed) {
+            quietSyncs.remove(listId);
+        } else {
+            Integer quiet = quietSyncs.get(listId);
+            quietSyncs.put(listId, quiet == null ? 1 : Math.min(quiet + 1, MAX_QUIET_SHIFT));
+        }
+    }
+
+    synchronized long getInterval(long listId) {
+        Integer quiet = quietSyncs.get(listId);
+        return quiet == null ? LIST_INTERVAL : LIST_INTERVAL << quiet;
+    }
+
+    public synchronized boolean isBackingOff() {
+        return currentTimeMillis() < backoffUntil;
+    }
+
+    /**
+     * Called when the server is overloaded or out of quota
+     */
+    public synchronized void backOff() {
+        long delay = Math.min(MIN_BACKOFF << Math.min(failures, 6), MAX_BACKOFF);
+        failures++;
+        backoffUntil = currentTimeMillis() + delay;
+        log.debug("backing off until {}", printTimestamp(backoffUntil));
+    }
+
+    /**
+     * Called when a request succeeds
+     */
+    public synchronized void resetBackoff() {
+        failures = 0;
+        backoffUntil = 0;
     }
 }